@@ -0,0 +1,203 @@
+//Pol Martorell Herrera
+/**
+ * @file ArbresDemanda.java
+ * @brief Sumes de demanda per subarbres de les components en forma d'arbre d'una xarxa de distribució d'aigua
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @class ArbresDemanda
+ * @brief Índex de recorregut d'Euler amb un arbre de Fenwick de demandes per a cada component en forma d'arbre.
+ *
+ * Cada component es numera en preordre des de la seva arrel: el subarbre d'un node v ocupa les posicions
+ * [entrada[v], sortida[v]). L'arbre de Fenwick guarda a la posició de cada terminal obert la seva demanda
+ * actual, de manera que la demanda d'un subarbre i l'actualització de la demanda d'un terminal costen
+ * O(log n). L'índex d'una component es construeix la primera vegada que es consulta i es descarta quan
+ * una canonada nova la toca.
+ */
+class ArbresDemanda {
+
+    private final IndexXarxa index;                        ///< Índex d'adjacència de la xarxa
+    private final Recorregut recorregut;                   ///< Recorregut compartit amb la resta de la xarxa
+    private int[] arbre = new int[16];                     ///< Índex de l'arbre calculat de cada node (-1 si no n'hi ha)
+    private int[] entrada = new int[16];                   ///< Posició de cada node en el preordre del seu arbre
+    private int[] sortida = new int[16];                   ///< Posició següent a l'última del subarbre de cada node
+    private final List<double[]> fenwick = new ArrayList<>(); ///< Arbre de Fenwick de cada arbre calculat (null si s'ha descartat)
+    private final List<int[]> membres = new ArrayList<>();    ///< Nodes de cada arbre calculat, en preordre
+    private int n = 0;                                     ///< Nombre de nodes
+
+    /**
+     * @brief Constructor
+     * @pre ---
+     * @post Crea un índex sense cap arbre calculat
+     * @param index Índex d'adjacència de la xarxa
+     * @param recorregut Recorregut sobre index
+     */
+    ArbresDemanda(IndexXarxa index, Recorregut recorregut) {
+        this.index = index;
+        this.recorregut = recorregut;
+    }
+
+    /**
+     * @brief Afegeix un node aïllat
+     * @pre El node té el següent identificador dens lliure
+     * @post El node no pertany a cap arbre calculat
+     */
+    void afegirNode() {
+        if (n == arbre.length) {
+            arbre = Arrays.copyOf(arbre, n * 2);
+            entrada = Arrays.copyOf(entrada, n * 2);
+            sortida = Arrays.copyOf(sortida, n * 2);
+        }
+        arbre[n] = -1;
+        n++;
+    }
+
+    /**
+     * @brief Descarta els arbres calculats dels extrems d'una canonada nova
+     * @pre o i d són identificadors densos de nodes
+     * @post Els arbres de o i d s'hauran de tornar a calcular
+     * @param o Identificador dens del node d'inici
+     * @param d Identificador dens del node de destí
+     */
+    void invalidar(int o, int d) {
+        invalidar(o);
+        invalidar(d);
+    }
+
+    /**
+     * @brief Resta la demanda del node v del seu arbre calculat, si en té
+     * @pre node és el node amb identificador dens v
+     * @post L'arbre no compta la demanda de node; cal cridar aportar(v, node) després de modificar-lo
+     * @param v Identificador dens del node
+     * @param node Node
+     */
+    void retirar(int v, Node_X node) {
+        if (arbre[v] != -1)
+            sumar(fenwick.get(arbre[v]), entrada[v], -pes(node));
+    }
+
+    /**
+     * @brief Suma la demanda del node v al seu arbre calculat, si en té
+     * @pre node és el node amb identificador dens v
+     * @post L'arbre compta la demanda de node segons el seu estat actual
+     * @param v Identificador dens del node
+     * @param node Node
+     */
+    void aportar(int v, Node_X node) {
+        if (arbre[v] != -1)
+            sumar(fenwick.get(arbre[v]), entrada[v], pes(node));
+    }
+
+    /**
+     * @brief Retorna la demanda dels terminals oberts del subarbre del node v
+     * @pre La component de v és un arbre
+     * @post Retorna la suma de la demanda actual dels terminals oberts del subarbre de v, construint l'índex
+     * de la component si no estava calculat
+     * @param v Identificador dens del node
+     * @return double Demanda del subarbre de v
+     */
+    double demanda(int v) {
+        if (arbre[v] == -1)
+            construir(v);
+        double[] f = fenwick.get(arbre[v]);
+        return prefix(f, sortida[v]) - prefix(f, entrada[v]);
+    }
+
+    /**
+     * @brief Descarta l'arbre calculat del node v, si en té
+     */
+    private void invalidar(int v) {
+        int a = arbre[v];
+        if (a == -1)
+            return;
+        for (int w : membres.get(a))
+            arbre[w] = -1;
+        membres.set(a, null);
+        fenwick.set(a, null);
+    }
+
+    /**
+     * @brief Construeix l'índex de l'arbre que conté v
+     * @pre La component de v és un arbre i no està calculada
+     * @post Tots els nodes de la component tenen posició d'entrada i de sortida i l'arbre de Fenwick conté les demandes
+     */
+    private void construir(int v) {
+        int arrel = v;
+        while (index.grauEntrada(arrel) > 0)
+            arrel = index.origen(index.entrada(index.iniciEntrades(arrel)));
+
+        Numeracio numeracio = new Numeracio(membres.size());
+        recorregut.profunditat(arrel, Recorregut.SORTIDES, numeracio);
+        int[] preordre = numeracio.preordre;
+        int temps = numeracio.temps;
+
+        double[] f = new double[temps + 1];
+        for (int i = 0; i < temps; i++) {
+            f[i + 1] += pes(index.node(preordre[i]));
+            int j = (i + 1) + ((i + 1) & -(i + 1));
+            if (j <= temps)
+                f[j] += f[i + 1];
+        }
+        membres.add(Arrays.copyOf(preordre, temps));
+        fenwick.add(f);
+    }
+
+    /**
+     * @class Numeracio
+     * @brief Numera en preordre els nodes d'un arbre i els assigna a l'arbre calculat a.
+     */
+    private class Numeracio implements Recorregut.Visitant {
+        private final int a;                 ///< Índex de l'arbre calculat
+        private int[] preordre = new int[16]; ///< Nodes en preordre
+        private int temps = 0;               ///< Nombre de nodes numerats
+
+        Numeracio(int a) {
+            this.a = a;
+        }
+
+        @Override
+        public void entrar(int v, int e) {
+            arbre[v] = a;
+            entrada[v] = temps;
+            if (temps == preordre.length)
+                preordre = Arrays.copyOf(preordre, temps * 2);
+            preordre[temps++] = v;
+        }
+
+        @Override
+        public void sortir(int v, int e) {
+            sortida[v] = temps;
+        }
+    }
+
+    /**
+     * @brief Retorna la demanda que aporta node: la demanda actual si és un terminal obert, 0 altrament
+     */
+    private static double pes(Node_X node) {
+        if (node instanceof PuntTerminal && node.aixetaOberta())
+            return ((PuntTerminal) node).demanda_actual();
+        return 0;
+    }
+
+    /**
+     * @brief Suma delta a la posició i de l'arbre de Fenwick f
+     */
+    private static void sumar(double[] f, int i, double delta) {
+        for (i++; i < f.length; i += i & -i)
+            f[i] += delta;
+    }
+
+    /**
+     * @brief Retorna la suma de les posicions [0, i) de l'arbre de Fenwick f
+     */
+    private static double prefix(double[] f, int i) {
+        double suma = 0;
+        for (; i > 0; i -= i & -i)
+            suma += f[i];
+        return suma;
+    }
+}
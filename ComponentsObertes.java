@@ -0,0 +1,385 @@
+//Pol Martorell Herrera
+/**
+ * @file ComponentsObertes.java
+ * @brief Components connexes dels nodes amb l'aixeta oberta d'una xarxa de distribució d'aigua, amb la demanda de cadascuna
+ */
+
+import java.util.Arrays;
+
+/**
+ * @class ComponentsObertes
+ * @brief Etiquetes de les components connexes (sense tenir en compte el sentit de les canonades) dels nodes oberts.
+ *
+ * Cada node obert té l'etiqueta de la seva component oberta, i cada etiqueta guarda el nombre de nodes i la suma de
+ * la demanda actual dels seus terminals; els nodes tancats no tenen etiqueta. L'aigua que surt d'un node arriba
+ * exactament als terminals de la component oberta dels seus veïns, de manera que la demanda accessible és una
+ * consulta directa. Les etiquetes es mantenen a cada canvi:
+ * - Una canonada o una aixeta oberta que uneix dues components reetiqueta la més petita amb un recorregut dins d'ella.
+ * - Una aixeta tancada pot partir la component en tants trossos com veïns oberts tenia el node. Es fa un recorregut
+ *   des de cada veí alhora, un pas de cadascun per torn, i els recorreguts que es troben es fusionen. Quan només en
+ *   queda un per acabar, els trossos acabats reben etiquetes noves i la resta conserva l'etiqueta: el cost és
+ *   proporcional als trossos que se separen, no a la component sencera.
+ * Com a ComponentsXarxa, la demanda es guarda en double i cal retirar l'aportació d'un node abans de canviar-ne la
+ * demanda o l'aixeta i tornar-la a afegir després.
+ */
+class ComponentsObertes {
+
+    private final IndexXarxa index;          ///< Índex d'adjacència de la xarxa
+    private int[] etiqueta = new int[16];     ///< Etiqueta de la component oberta de cada node (-1 si està tancat)
+    private int[] cua = new int[16];          ///< Cua dels recorreguts de reetiquetatge
+    private int[] marca = new int[16];        ///< Època de l'última partició que ha visitat cada node
+    private int[] cerca = new int[16];        ///< Recorregut que ha visitat cada node a la partició actual
+    private int epoca = 0;                    ///< Època de la partició actual
+    private int n = 0;                        ///< Nombre de nodes
+    private int[] mida = new int[16];         ///< Nombre de nodes de cada etiqueta
+    private double[] demanda = new double[16]; ///< Demanda actual dels terminals de cada etiqueta
+    private int[] marcaEtiqueta = new int[16]; ///< Època de l'última consulta que ha comptat cada etiqueta
+    private int epocaEtiquetes = 0;           ///< Època de la consulta actual
+    private int[] lliures = new int[16];      ///< Etiquetes que no fa servir cap node
+    private int nLliures = 0;                 ///< Nombre d'etiquetes lliures
+    private int nEtiquetes = 0;               ///< Nombre d'etiquetes creades
+
+    /**
+     * @brief Constructor
+     * @pre index no té cap node
+     * @post Crea les components obertes buides de la xarxa de index
+     * @param index Índex d'adjacència de la xarxa
+     */
+    ComponentsObertes(IndexXarxa index) {
+        this.index = index;
+    }
+
+    /**
+     * @brief Afegeix un node sense canonades
+     * @pre El node té el següent identificador dens lliure
+     * @post Si el node és obert, forma una component oberta per si sol
+     * @param node Node a afegir
+     */
+    void afegirNode(Node_X node) {
+        if (n == etiqueta.length) {
+            etiqueta = Arrays.copyOf(etiqueta, n * 2);
+            cua = Arrays.copyOf(cua, n * 2);
+            marca = Arrays.copyOf(marca, n * 2);
+            cerca = Arrays.copyOf(cerca, n * 2);
+        }
+        etiqueta[n] = -1;
+        n++;
+        if (node.aixetaOberta())
+            obrir(n - 1, node);
+    }
+
+    /**
+     * @brief Uneix les components obertes dels extrems d'una canonada nova
+     * @pre La canonada de o a d ja és a l'índex
+     * @post Si o i d són oberts, són a la mateixa component oberta
+     * @param o Identificador dens del node d'inici
+     * @param d Identificador dens del node de destí
+     */
+    void afegirCanonada(int o, int d) {
+        if (etiqueta[o] != -1 && etiqueta[d] != -1)
+            unir(o, d);
+    }
+
+    /**
+     * @brief Retira de la component oberta l'aportació del node v a la demanda
+     * @pre node és el node amb identificador dens v i la seva aportació consta a la component
+     * @post La component no compta la demanda de node; cal cridar aportar(v, node) després de modificar-lo
+     * @param v Identificador dens del node
+     * @param node Node
+     */
+    void retirar(int v, Node_X node) {
+        if (etiqueta[v] != -1)
+            demanda[etiqueta[v]] -= aportacio(node);
+    }
+
+    /**
+     * @brief Afegeix l'aportació del node v segons el seu estat actual
+     * @pre node és el node amb identificador dens v i la seva aportació s'ha retirat
+     * @post Si el node s'ha obert, uneix les components dels seus veïns oberts; si s'ha tancat, en parteix la component
+     * en els trossos que queden desconnectats; la component del node compta la seva demanda
+     * @param v Identificador dens del node
+     * @param node Node
+     */
+    void aportar(int v, Node_X node) {
+        boolean obert = node.aixetaOberta();
+        if (obert && etiqueta[v] == -1)
+            obrir(v, node);
+        else if (!obert && etiqueta[v] != -1)
+            tancar(v);
+        else if (obert)
+            demanda[etiqueta[v]] += aportacio(node);
+    }
+
+    /**
+     * @brief Retorna la demanda dels terminals on pot arribar aigua des del node v
+     * @pre 0 <= v < nombre de nodes
+     * @post Retorna la demanda de la component oberta de v o, si v és tancat, la suma de les components obertes dels
+     * seus veïns, en temps proporcional al grau de v
+     * @param v Identificador dens del node
+     * @return double Demanda accessible des de v
+     */
+    double demandaAccessible(int v) {
+        if (etiqueta[v] != -1)
+            return demanda[etiqueta[v]];
+        if (++epocaEtiquetes == 0) {
+            Arrays.fill(marcaEtiqueta, 0);
+            epocaEtiquetes = 1;
+        }
+        double total = 0;
+        for (int k = index.iniciSortides(v); k < index.fiSortides(v); k++)
+            total += demandaNova(index.desti(index.sortida(k)));
+        for (int k = index.iniciEntrades(v); k < index.fiEntrades(v); k++)
+            total += demandaNova(index.origen(index.entrada(k)));
+        return total;
+    }
+
+    /**
+     * @brief Retorna la demanda de la component oberta de w si encara no s'ha comptat en aquesta consulta, o 0
+     */
+    private double demandaNova(int w) {
+        int e = etiqueta[w];
+        if (e == -1 || marcaEtiqueta[e] == epocaEtiquetes)
+            return 0;
+        marcaEtiqueta[e] = epocaEtiquetes;
+        return demanda[e];
+    }
+
+    /**
+     * @brief Dona una etiqueta nova al node v, que s'acaba d'obrir, i l'uneix amb els seus veïns oberts
+     */
+    private void obrir(int v, Node_X node) {
+        int e = novaEtiqueta();
+        etiqueta[v] = e;
+        mida[e] = 1;
+        demanda[e] = aportacio(node);
+        for (int k = index.iniciSortides(v); k < index.fiSortides(v); k++) {
+            int w = index.desti(index.sortida(k));
+            if (etiqueta[w] != -1)
+                unir(v, w);
+        }
+        for (int k = index.iniciEntrades(v); k < index.fiEntrades(v); k++) {
+            int w = index.origen(index.entrada(k));
+            if (etiqueta[w] != -1)
+                unir(v, w);
+        }
+    }
+
+    /**
+     * @brief Uneix les components obertes dels nodes oberts a i b reetiquetant la més petita
+     */
+    private void unir(int a, int b) {
+        int ea = etiqueta[a];
+        int eb = etiqueta[b];
+        if (ea == eb)
+            return;
+        if (mida[ea] < mida[eb]) {
+            int t = ea;
+            ea = eb;
+            eb = t;
+            b = a;
+        }
+        reetiquetar(b, eb, ea);
+        mida[ea] += mida[eb];
+        demanda[ea] += demanda[eb];
+        alliberar(eb);
+    }
+
+    /**
+     * @brief Treu el node v, que s'acaba de tancar, de la seva component oberta i separa els trossos que en queden
+     * desconnectats
+     */
+    private void tancar(int v) {
+        int e = etiqueta[v];
+        etiqueta[v] = -1;
+        if (--mida[e] == 0) {
+            alliberar(e);
+            return;
+        }
+        if (++epoca == 0) {
+            Arrays.fill(marca, 0);
+            epoca = 1;
+        }
+
+        // Un recorregut des de cada veí obert diferent; cada recorregut té la seva pròpia cua
+        int[] veins = new int[index.fiSortides(v) - index.iniciSortides(v) + index.fiEntrades(v) - index.iniciEntrades(v)];
+        int k = 0;
+        for (int i = index.iniciSortides(v); i < index.fiSortides(v); i++)
+            k = afegirVei(veins, k, index.desti(index.sortida(i)), e);
+        for (int i = index.iniciEntrades(v); i < index.fiEntrades(v); i++)
+            k = afegirVei(veins, k, index.origen(index.entrada(i)), e);
+        if (k <= 1)
+            return;
+
+        int[][] cues = new int[k][];
+        int[] cap = new int[k];
+        int[] fi = new int[k];
+        int[] arrel = new int[k];
+        int[] trobats = new int[k];
+        double[] demandaCerca = new double[k];
+        for (int i = 0; i < k; i++) {
+            cues[i] = new int[]{veins[i]};
+            fi[i] = 1;
+            arrel[i] = i;
+            trobats[i] = 1;
+            demandaCerca[i] = aportacio(index.node(veins[i]));
+        }
+
+        int actius = k;
+        while (actius > 1) {
+            for (int i = 0; i < k && actius > 1; i++) {
+                if (arrel[i] != i || cap[i] == fi[i])
+                    continue;
+                int u = cues[i][cap[i]++];
+                for (int j = index.iniciSortides(u); j < index.fiSortides(u); j++)
+                    actius -= visitar(index.desti(index.sortida(j)), e, i, cues, cap, fi, arrel, trobats, demandaCerca);
+                for (int j = index.iniciEntrades(u); j < index.fiEntrades(u); j++)
+                    actius -= visitar(index.origen(index.entrada(j)), e, i, cues, cap, fi, arrel, trobats, demandaCerca);
+                int r = trobar(arrel, i);
+                if (cap[r] == fi[r])
+                    actius--;
+            }
+        }
+
+        // Es conserva l'etiqueta per al tros que no ha acabat o, si han acabat tots, per al més gran
+        int conservat = -1;
+        for (int i = 0; i < k; i++) {
+            if (arrel[i] == i && (conservat == -1 || cap[i] < fi[i] || (cap[conservat] == fi[conservat] && trobats[i] > trobats[conservat])))
+                conservat = i;
+        }
+        for (int i = 0; i < k; i++) {
+            if (arrel[i] != i || i == conservat)
+                continue;
+            int nova = novaEtiqueta();
+            reetiquetar(veins[i], e, nova);
+            mida[nova] = trobats[i];
+            demanda[nova] = demandaCerca[i];
+            mida[e] -= trobats[i];
+            demanda[e] -= demandaCerca[i];
+        }
+        if (cap[conservat] == fi[conservat])
+            demanda[e] = demandaCerca[conservat];
+    }
+
+    /**
+     * @brief Afegeix w a veins si és de la component e i no hi era
+     * @return int Nombre de veïns després d'afegir-lo
+     */
+    private int afegirVei(int[] veins, int k, int w, int e) {
+        if (etiqueta[w] != e || marca[w] == epoca)
+            return k;
+        marca[w] = epoca;
+        cerca[w] = k;
+        veins[k] = w;
+        return k + 1;
+    }
+
+    /**
+     * @brief Visita el veí w des del recorregut i: si és nou, l'encua; si és d'un altre recorregut, els fusiona
+     * @return int 1 si s'han fusionat dos recorreguts que no havien acabat, 0 altrament
+     */
+    private int visitar(int w, int e, int i, int[][] cues, int[] cap, int[] fi, int[] arrel, int[] trobats, double[] demandaCerca) {
+        if (etiqueta[w] != e)
+            return 0;
+        int r = trobar(arrel, i);
+        if (marca[w] != epoca) {
+            marca[w] = epoca;
+            cerca[w] = r;
+            if (fi[r] == cues[r].length)
+                cues[r] = Arrays.copyOf(cues[r], fi[r] * 2);
+            cues[r][fi[r]++] = w;
+            trobats[r]++;
+            demandaCerca[r] += aportacio(index.node(w));
+            return 0;
+        }
+        int s = trobar(arrel, cerca[w]);
+        if (s == r)
+            return 0;
+        // Es fusionen els dos recorreguts: la cua pendent més curta s'afegeix a la més llarga
+        if (fi[s] - cap[s] > fi[r] - cap[r]) {
+            int t = r;
+            r = s;
+            s = t;
+        }
+        int pendents = fi[s] - cap[s];
+        if (fi[r] + pendents > cues[r].length)
+            cues[r] = Arrays.copyOf(cues[r], Math.max(cues[r].length * 2, fi[r] + pendents));
+        System.arraycopy(cues[s], cap[s], cues[r], fi[r], pendents);
+        fi[r] += pendents;
+        cues[s] = null;
+        arrel[s] = r;
+        trobats[r] += trobats[s];
+        demandaCerca[r] += demandaCerca[s];
+        return 1;
+    }
+
+    /**
+     * @brief Retorna el recorregut que representa el grup del recorregut i
+     */
+    private static int trobar(int[] arrel, int i) {
+        while (arrel[i] != i) {
+            arrel[i] = arrel[arrel[i]];
+            i = arrel[i];
+        }
+        return i;
+    }
+
+    /**
+     * @brief Canvia l'etiqueta de a per b a tots els nodes de la component oberta de inici
+     * @pre inici té l'etiqueta a i els nodes amb l'etiqueta a accessibles des d'inici formen una component oberta
+     */
+    private void reetiquetar(int inici, int a, int b) {
+        int cap = 0, fi = 0;
+        etiqueta[inici] = b;
+        cua[fi++] = inici;
+        while (cap < fi) {
+            int u = cua[cap++];
+            for (int k = index.iniciSortides(u); k < index.fiSortides(u); k++) {
+                int w = index.desti(index.sortida(k));
+                if (etiqueta[w] == a) {
+                    etiqueta[w] = b;
+                    cua[fi++] = w;
+                }
+            }
+            for (int k = index.iniciEntrades(u); k < index.fiEntrades(u); k++) {
+                int w = index.origen(index.entrada(k));
+                if (etiqueta[w] == a) {
+                    etiqueta[w] = b;
+                    cua[fi++] = w;
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief Retorna una etiqueta sense nodes
+     */
+    private int novaEtiqueta() {
+        if (nLliures > 0)
+            return lliures[--nLliures];
+        if (nEtiquetes == mida.length) {
+            mida = Arrays.copyOf(mida, nEtiquetes * 2);
+            demanda = Arrays.copyOf(demanda, nEtiquetes * 2);
+            marcaEtiqueta = Arrays.copyOf(marcaEtiqueta, nEtiquetes * 2);
+            lliures = Arrays.copyOf(lliures, nEtiquetes * 2);
+        }
+        return nEtiquetes++;
+    }
+
+    /**
+     * @brief Marca l'etiqueta e com a lliure
+     */
+    private void alliberar(int e) {
+        mida[e] = 0;
+        demanda[e] = 0;
+        lliures[nLliures++] = e;
+    }
+
+    /**
+     * @brief Retorna la demanda que aporta el node: la seva demanda actual si és un terminal obert, 0 altrament
+     */
+    private static double aportacio(Node_X node) {
+        if (node instanceof PuntTerminal && node.aixetaOberta())
+            return ((PuntTerminal) node).demanda_actual();
+        return 0;
+    }
+}
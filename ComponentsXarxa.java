@@ -0,0 +1,294 @@
+//Pol Martorell Herrera
+/**
+ * @file ComponentsXarxa.java
+ * @brief Components connexes d'una xarxa de distribució d'aigua mantingudes amb una estructura union-find
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @class ComponentsXarxa
+ * @brief Union-find sobre els identificadors densos dels nodes d'una Xarxa.
+ *
+ * Com que les canonades no s'eliminen mai, les components connexes (sense tenir en compte el sentit
+ * de les canonades) només es poden unir, i n'hi ha prou amb unir-les cada vegada que s'afegeix una
+ * canonada. Cada component guarda a la seva arrel les dades agregades: el nombre de nodes i de canonades,
+ * quants nodes tenen més d'una entrada, si té cicles i les llistes d'orígens i terminals. En unir dues components, la llista més curta s'afegeix a la més
+ * llarga, de manera que el cost total de mantenir les llistes és O(n log n). Els nodes i les canonades de cada
+ * component formen a més una llista circular d'identificadors densos, que s'uneix en temps constant i permet
+ * recórrer una component sense passar per la resta de la xarxa.
+ */
+class ComponentsXarxa {
+
+    private int[] pare = new int[16];            ///< Pare de cada node a l'arbre union-find (ell mateix si és arrel)
+    private int[] mida = new int[16];            ///< Nombre de nodes de la component, vàlid a les arrels
+    private int[] canonades = new int[16];       ///< Nombre de canonades de la component, vàlid a les arrels
+    private int[] multiEntrada = new int[16];    ///< Nombre de nodes de la component amb més d'una entrada, vàlid a les arrels
+    private boolean[] ciclica = new boolean[16]; ///< Diu si la component té algun cicle dirigit, vàlid a les arrels
+    private final List<List<PuntOrigen>> origens = new ArrayList<>();     ///< Orígens de la component, vàlid a les arrels
+    private final List<List<PuntTerminal>> terminals = new ArrayList<>(); ///< Terminals de la component, vàlid a les arrels
+    private int[] seguentNode = new int[16];     ///< Següent node de la llista circular de nodes de la component
+    private int[] primeraCanonada = new int[16]; ///< Una canonada de la component (-1 si no en té), vàlid a les arrels
+    private int[] seguentCanonada = new int[16]; ///< Següent canonada de la llista circular de canonades de la component
+    private int n = 0;                           ///< Nombre de nodes
+
+    /**
+     * @brief Afegeix un node aïllat
+     * @pre El node té el següent identificador dens lliure
+     * @post El node forma una component per si sol, sense cicles
+     * @param node Node a afegir
+     */
+    void afegirNode(Node_X node) {
+        if (n == pare.length) {
+            pare = Arrays.copyOf(pare, n * 2);
+            mida = Arrays.copyOf(mida, n * 2);
+            canonades = Arrays.copyOf(canonades, n * 2);
+            multiEntrada = Arrays.copyOf(multiEntrada, n * 2);
+            ciclica = Arrays.copyOf(ciclica, n * 2);
+            seguentNode = Arrays.copyOf(seguentNode, n * 2);
+            primeraCanonada = Arrays.copyOf(primeraCanonada, n * 2);
+        }
+        pare[n] = n;
+        mida[n] = 1;
+        canonades[n] = 0;
+        multiEntrada[n] = 0;
+        ciclica[n] = false;
+        seguentNode[n] = n;
+        primeraCanonada[n] = -1;
+        origens.add(new ArrayList<>());
+        terminals.add(new ArrayList<>());
+        afegirALlistes(n, node);
+        n++;
+    }
+
+    /**
+     * @brief Retorna l'identificador de la component del node v
+     * @pre 0 <= v < nombre de nodes
+     * @post Retorna l'arrel de la component de v; dos nodes són a la mateixa component si i només si tenen la mateixa arrel
+     * @param v Identificador dens del node
+     * @return int Identificador de la component
+     */
+    int component(int v) {
+        while (pare[v] != v) {
+            pare[v] = pare[pare[v]];
+            v = pare[v];
+        }
+        return v;
+    }
+
+    /**
+     * @brief Uneix les components dels nodes a i b
+     * @pre 0 <= a, b < nombre de nodes
+     * @post a i b són a la mateixa component, que té cicles si en tenia qualsevol de les dues
+     * @param a Identificador dens d'un node
+     * @param b Identificador dens d'un node
+     * @return int Identificador de la component resultant
+     */
+    int unir(int a, int b) {
+        int ra = component(a);
+        int rb = component(b);
+        if (ra == rb)
+            return ra;
+        if (mida[ra] < mida[rb]) {
+            int t = ra;
+            ra = rb;
+            rb = t;
+        }
+        pare[rb] = ra;
+        mida[ra] += mida[rb];
+        canonades[ra] += canonades[rb];
+        multiEntrada[ra] += multiEntrada[rb];
+        ciclica[ra] |= ciclica[rb];
+        origens.set(ra, fusionar(origens.get(ra), origens.get(rb)));
+        terminals.set(ra, fusionar(terminals.get(ra), terminals.get(rb)));
+        origens.set(rb, null);
+        terminals.set(rb, null);
+        // Dues llistes circulars s'uneixen intercanviant el següent d'un element de cadascuna
+        int t = seguentNode[ra];
+        seguentNode[ra] = seguentNode[rb];
+        seguentNode[rb] = t;
+        if (primeraCanonada[ra] == -1) {
+            primeraCanonada[ra] = primeraCanonada[rb];
+        } else if (primeraCanonada[rb] != -1) {
+            int ea = primeraCanonada[ra];
+            int eb = primeraCanonada[rb];
+            t = seguentCanonada[ea];
+            seguentCanonada[ea] = seguentCanonada[eb];
+            seguentCanonada[eb] = t;
+        }
+        return ra;
+    }
+
+    /**
+     * @brief Compta una canonada nova que entra al node d
+     * @pre e és el següent identificador dens de canonada lliure, les components dels extrems de la canonada ja
+     * s'han unit i grauEntrada és el nombre d'entrades de d comptant-la
+     * @post La component de d té una canonada més i, si d passa a tenir dues entrades, un node més amb més d'una entrada
+     * @param e Identificador dens de la canonada
+     * @param d Identificador dens del node de destí
+     * @param grauEntrada Nombre de canonades que entren a d
+     */
+    void afegirCanonada(int e, int d, int grauEntrada) {
+        if (e == seguentCanonada.length)
+            seguentCanonada = Arrays.copyOf(seguentCanonada, e * 2);
+        int r = component(d);
+        if (primeraCanonada[r] == -1) {
+            primeraCanonada[r] = e;
+            seguentCanonada[e] = e;
+        } else {
+            seguentCanonada[e] = seguentCanonada[primeraCanonada[r]];
+            seguentCanonada[primeraCanonada[r]] = e;
+        }
+        canonades[r]++;
+        if (grauEntrada == 2)
+            multiEntrada[r]++;
+    }
+
+    /**
+     * @brief Diu si la component del node v és un arbre
+     * @pre 0 <= v < nombre de nodes
+     * @post Retorna cert si la component té una canonada menys que nodes i cap node amb més d'una entrada; llavors
+     * no té cicles i té una sola arrel
+     * @param v Identificador dens del node
+     * @return boolean Cert si la component és un arbre
+     */
+    boolean esArbre(int v) {
+        int r = component(v);
+        return canonades[r] == mida[r] - 1 && multiEntrada[r] == 0;
+    }
+
+    /**
+     * @brief Substitueix el node v a les llistes de la seva component
+     * @pre antic és el node amb identificador dens v i nou té el mateix id
+     * @post antic ja no consta a les llistes de la component i nou hi consta si és un origen o un terminal
+     * @param v Identificador dens del node
+     * @param antic Node que se substitueix
+     * @param nou Node que el substitueix
+     */
+    void substituirNode(int v, Node_X antic, Node_X nou) {
+        int r = component(v);
+        if (antic instanceof PuntOrigen)
+            origens.get(r).remove(antic);
+        else if (antic instanceof PuntTerminal)
+            terminals.get(r).remove(antic);
+        afegirALlistes(r, nou);
+    }
+
+    /**
+     * @brief Retorna els orígens de la component del node v
+     * @pre 0 <= v < nombre de nodes
+     * @post Retorna una vista no modificable dels orígens de la component de v
+     * @param v Identificador dens del node
+     * @return List<PuntOrigen> Orígens de la component
+     */
+    List<PuntOrigen> origens(int v) {
+        return Collections.unmodifiableList(origens.get(component(v)));
+    }
+
+    /**
+     * @brief Retorna els terminals de la component del node v
+     * @pre 0 <= v < nombre de nodes
+     * @post Retorna una vista no modificable dels terminals de la component de v
+     * @param v Identificador dens del node
+     * @return List<PuntTerminal> Terminals de la component
+     */
+    List<PuntTerminal> terminals(int v) {
+        return Collections.unmodifiableList(terminals.get(component(v)));
+    }
+
+    /**
+     * @brief Retorna els identificadors densos dels nodes de la component del node v
+     * @pre 0 <= v < nombre de nodes
+     * @post Retorna un vector nou amb els nodes de la component de v, en un ordre qualsevol, en temps proporcional a la
+     * mida de la component
+     * @param v Identificador dens del node
+     * @return int[] Nodes de la component
+     */
+    int[] nodes(int v) {
+        int r = component(v);
+        int[] resultat = new int[mida[r]];
+        int w = r;
+        for (int i = 0; i < resultat.length; i++) {
+            resultat[i] = w;
+            w = seguentNode[w];
+        }
+        return resultat;
+    }
+
+    /**
+     * @brief Retorna els identificadors densos de les canonades de la component del node v
+     * @pre 0 <= v < nombre de nodes
+     * @post Retorna un vector nou amb les canonades de la component de v, en un ordre qualsevol, en temps
+     * proporcional al nombre de canonades de la component
+     * @param v Identificador dens del node
+     * @return int[] Canonades de la component
+     */
+    int[] canonades(int v) {
+        int r = component(v);
+        int[] resultat = new int[canonades[r]];
+        int e = primeraCanonada[r];
+        for (int i = 0; i < resultat.length; i++) {
+            resultat[i] = e;
+            e = seguentCanonada[e];
+        }
+        return resultat;
+    }
+
+    /**
+     * @brief Marca que la component del node v té un cicle dirigit
+     * @pre 0 <= v < nombre de nodes
+     * @post La component de v té cicles
+     * @param v Identificador dens del node
+     */
+    void marcarCiclica(int v) {
+        ciclica[component(v)] = true;
+    }
+
+    /**
+     * @brief Diu si la component del node v té algun cicle dirigit
+     * @pre 0 <= v < nombre de nodes
+     * @post Retorna cert si s'ha marcat que la component de v té cicles
+     * @param v Identificador dens del node
+     * @return boolean Cert si la component té cicles
+     */
+    boolean ciclica(int v) {
+        return ciclica[component(v)];
+    }
+
+    /**
+     * @brief Retorna el nombre de nodes de la component del node v
+     * @pre 0 <= v < nombre de nodes
+     * @post Retorna el nombre de nodes de la component de v
+     * @param v Identificador dens del node
+     * @return int Nombre de nodes de la component
+     */
+    int mida(int v) {
+        return mida[component(v)];
+    }
+
+    /**
+     * @brief Afegeix node a la llista d'orígens o de terminals de l'arrel r, segons el seu tipus
+     */
+    private void afegirALlistes(int r, Node_X node) {
+        if (node instanceof PuntOrigen)
+            origens.get(r).add((PuntOrigen) node);
+        else if (node instanceof PuntTerminal)
+            terminals.get(r).add((PuntTerminal) node);
+    }
+
+    /**
+     * @brief Afegeix la llista més curta a la més llarga i retorna la llarga
+     */
+    private static <T> List<T> fusionar(List<T> a, List<T> b) {
+        if (a.size() < b.size()) {
+            List<T> t = a;
+            a = b;
+            b = t;
+        }
+        a.addAll(b);
+        return a;
+    }
+}
@@ -11,8 +11,13 @@
 public class Coordenades {
     // Descripció general: Coordenades geogràfiques (latitud, longitud)
 
+    private static final double RADI_TERRA = 6371.0; ///< Radi de la Terra en km
+
     private float latitud;  ///< Latitud de les coordenades
     private float longitud; ///< Longitud de les coordenades
+    private final double latitudRad;  ///< Latitud en radians
+    private final double longitudRad; ///< Longitud en radians
+    private final double cosLatitud;  ///< Cosinus de la latitud
 
     /**
      * @brief Constructor de la classe Coordenades amb graus, minuts, segons i direcció.
@@ -40,6 +45,9 @@ public class Coordenades {
         if (direccioLongitud == 'W') {
             this.longitud = -this.longitud;
         }
+        this.latitudRad = Math.toRadians(this.latitud);
+        this.longitudRad = Math.toRadians(this.longitud);
+        this.cosLatitud = Math.cos(this.latitudRad);
     }
 
     /**
@@ -56,6 +64,9 @@ public class Coordenades {
         }
         this.latitud = latitud;
         this.longitud = longitud;
+        this.latitudRad = Math.toRadians(latitud);
+        this.longitudRad = Math.toRadians(longitud);
+        this.cosLatitud = Math.cos(latitudRad);
     }
 
     /**
@@ -66,16 +77,50 @@ public class Coordenades {
      * @post Retorna la distància entre aquestes coordenades i c.
      */
     public double distancia(Coordenades c) {
-        final double radiTerra = 6371.0;
-        double latitud1 = Math.toRadians(this.latitud);
-        double longitud1 = Math.toRadians(this.longitud);
-        double latitud2 = Math.toRadians(c.latitud);
-        double longitud2 = Math.toRadians(c.longitud);
-        double deltaLatitud = latitud2 - latitud1;
-        double deltaLongitud = longitud2 - longitud1;
-        double a = Math.pow(Math.sin(deltaLatitud / 2), 2) + Math.cos(latitud1) * Math.cos(latitud2) * Math.pow(Math.sin(deltaLongitud / 2), 2);
+        return distancia(c.latitudRad, c.longitudRad, c.cosLatitud);
+    }
+
+    /**
+     * @brief Empaqueta unes coordenades en un vector per calcular-ne les distàncies amb distancies.
+     * @param coordenades Coordenades a empaquetar.
+     * @return Vector amb la latitud i la longitud en radians i el cosinus de la latitud de cada coordenada, consecutius.
+     * @pre ---
+     * @post Retorna un vector de mida 3 * coordenades.length amb les dades de les coordenades en el mateix ordre.
+     */
+    public static double[] empaquetar(Coordenades[] coordenades) {
+        double[] empaquetades = new double[3 * coordenades.length];
+        for (int i = 0; i < coordenades.length; i++) {
+            empaquetades[3 * i] = coordenades[i].latitudRad;
+            empaquetades[3 * i + 1] = coordenades[i].longitudRad;
+            empaquetades[3 * i + 2] = coordenades[i].cosLatitud;
+        }
+        return empaquetades;
+    }
+
+    /**
+     * @brief Calcula la distància entre aquestes coordenades i cadascuna de les coordenades empaquetades.
+     * @param empaquetades Coordenades empaquetades amb empaquetar.
+     * @param distancies Vector on es guarden les distàncies, en km.
+     * @pre distancies.length >= empaquetades.length / 3.
+     * @post distancies[i] és la distància entre aquestes coordenades i les i-èsimes coordenades empaquetades, igual que amb distancia.
+     */
+    public void distancies(double[] empaquetades, double[] distancies) {
+        for (int i = 0, j = 0; j < empaquetades.length; i++, j += 3) {
+            distancies[i] = distancia(empaquetades[j], empaquetades[j + 1], empaquetades[j + 2]);
+        }
+    }
+
+    /**
+     * @brief Calcula la distància amb la fórmula del semiversinus fins al punt de latitud latitud2 i longitud longitud2 (en radians).
+     * @pre cosLatitud2 és el cosinus de latitud2.
+     * @post Retorna la distància en km.
+     */
+    private double distancia(double latitud2, double longitud2, double cosLatitud2) {
+        double sinDeltaLatitud = Math.sin((latitud2 - latitudRad) / 2);
+        double sinDeltaLongitud = Math.sin((longitud2 - longitudRad) / 2);
+        double a = sinDeltaLatitud * sinDeltaLatitud + cosLatitud * cosLatitud2 * sinDeltaLongitud * sinDeltaLongitud;
         double c1 = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return radiTerra * c1;
+        return RADI_TERRA * c1;
     }
 
     /**
@@ -88,6 +133,36 @@ public class Coordenades {
         return this.longitud;
     }
 
+    /**
+     * @brief Retorna la latitud en radians.
+     * @return Latitud en radians.
+     * @pre ---
+     * @post Retorna la latitud en radians, calculada en crear les coordenades.
+     */
+    double latitudRad() {
+        return this.latitudRad;
+    }
+
+    /**
+     * @brief Retorna la longitud en radians.
+     * @return Longitud en radians.
+     * @pre ---
+     * @post Retorna la longitud en radians, calculada en crear les coordenades.
+     */
+    double longitudRad() {
+        return this.longitudRad;
+    }
+
+    /**
+     * @brief Retorna el cosinus de la latitud.
+     * @return Cosinus de la latitud.
+     * @pre ---
+     * @post Retorna el cosinus de la latitud, calculat en crear les coordenades.
+     */
+    double cosLatitud() {
+        return this.cosLatitud;
+    }
+
     /**
      * @brief Retorna la latitud de les coordenades.
      * @return Latitud de les coordenades.
@@ -0,0 +1,191 @@
+//Pol Martorell Herrera
+/**
+ * @file DetectorCicles.java
+ * @brief Detecció de cicles en línia a mesura que s'afegeixen canonades a una xarxa de distribució d'aigua
+ */
+
+import java.util.Arrays;
+
+/**
+ * @class DetectorCicles
+ * @brief Manté un ordre topològic dinàmic dels nodes (algorisme de Pearce–Kelly) i marca les components amb cicles.
+ *
+ * Quan s'afegeix una canonada u→v amb ordre[u] > ordre[v], només es reordenen els nodes amb ordre entre
+ * ordre[v] i ordre[u]: els accessibles des de v i els que arriben a u. Si des de v s'arriba a u, la canonada
+ * tanca un cicle i la component queda marcada com a cíclica per sempre (les canonades no s'eliminen). Les
+ * components cícliques ja no necessiten ordre, de manera que les seves canonades no el modifiquen.
+ */
+class DetectorCicles {
+
+    private final IndexXarxa index;           ///< Índex d'adjacència de la xarxa
+    private final ComponentsXarxa components; ///< Components connexes de la xarxa
+    private int[] ordre = new int[16];        ///< Posició de cada node a l'ordre topològic
+    private int[] marca = new int[16];        ///< Època de l'última visita de cada node
+    private int epoca = 0;                    ///< Època del recorregut actual
+    private int[] pila = new int[16];         ///< Pila dels recorreguts en profunditat
+    private int[] afectats = new int[16];     ///< Nodes visitats: primer els de darrere (de u) i després els de davant (de v)
+    private int n = 0;                        ///< Nombre de nodes
+
+    /**
+     * @brief Constructor
+     * @pre components té els mateixos nodes que index
+     * @post Crea un detector sense nodes
+     * @param index Índex d'adjacència de la xarxa
+     * @param components Components connexes de la xarxa
+     */
+    DetectorCicles(IndexXarxa index, ComponentsXarxa components) {
+        this.index = index;
+        this.components = components;
+    }
+
+    /**
+     * @brief Afegeix un node aïllat al final de l'ordre
+     * @pre El node té el següent identificador dens lliure
+     * @post El node ocupa l'última posició de l'ordre
+     */
+    void afegirNode() {
+        if (n == ordre.length) {
+            ordre = Arrays.copyOf(ordre, n * 2);
+            marca = Arrays.copyOf(marca, n * 2);
+        }
+        ordre[n] = n;
+        marca[n] = 0;
+        n++;
+    }
+
+    /**
+     * @brief Actualitza l'ordre amb una canonada nova
+     * @pre La canonada o→d ja és a l'índex i les components de o i d ja s'han unit
+     * @post Si la canonada tanca un cicle la component queda marcada; si no, l'ordre continua sent topològic
+     * @param o Identificador dens del node d'inici
+     * @param d Identificador dens del node de destí
+     */
+    void afegirCanonada(int o, int d) {
+        if (components.ciclica(o))
+            return;
+        if (o == d) {
+            components.marcarCiclica(o);
+            return;
+        }
+        int inferior = ordre[d];
+        int superior = ordre[o];
+        if (inferior > superior)
+            return;
+
+        epoca++;
+        int nDavant = recorrerDavant(d, o, superior);
+        if (nDavant == -1) {
+            components.marcarCiclica(o);
+            return;
+        }
+        // Els nodes de davant s'han guardat al principi d'afectats: es passen al final
+        int[] davant = Arrays.copyOf(afectats, nDavant);
+        int nDarrere = recorrerDarrere(o, inferior);
+        assegurarAfectats(nDarrere + nDavant);
+        System.arraycopy(davant, 0, afectats, nDarrere, nDavant);
+        reordenar(nDarrere, nDavant);
+    }
+
+    /**
+     * @brief Diu si la component del node v té algun cicle dirigit
+     * @pre v és l'identificador dens d'un node
+     * @post Retorna cert si la component de v té cicles
+     * @param v Identificador dens del node
+     * @return boolean Cert si la component té cicles
+     */
+    boolean teCicles(int v) {
+        return components.ciclica(v);
+    }
+
+    /**
+     * @brief Recorre en profunditat les sortides des de d per nodes amb ordre menor que superior
+     * @return int Nombre de nodes visitats (guardats a afectats), o -1 si s'arriba a o
+     */
+    private int recorrerDavant(int d, int o, int superior) {
+        int nVisitats = 0, cim = 0;
+        marca[d] = epoca;
+        pila[cim++] = d;
+        while (cim > 0) {
+            int u = pila[--cim];
+            assegurarAfectats(nVisitats + 1);
+            afectats[nVisitats++] = u;
+            for (int k = index.iniciSortides(u); k < index.fiSortides(u); k++) {
+                int w = index.desti(index.sortida(k));
+                if (w == o)
+                    return -1;
+                if (marca[w] != epoca && ordre[w] < superior) {
+                    marca[w] = epoca;
+                    cim = apilar(cim, w);
+                }
+            }
+        }
+        return nVisitats;
+    }
+
+    /**
+     * @brief Recorre en profunditat les entrades des de o per nodes amb ordre major que inferior
+     * @return int Nombre de nodes visitats (guardats a afectats)
+     */
+    private int recorrerDarrere(int o, int inferior) {
+        int nVisitats = 0, cim = 0;
+        marca[o] = epoca;
+        pila[cim++] = o;
+        while (cim > 0) {
+            int u = pila[--cim];
+            assegurarAfectats(nVisitats + 1);
+            afectats[nVisitats++] = u;
+            for (int k = index.iniciEntrades(u); k < index.fiEntrades(u); k++) {
+                int w = index.origen(index.entrada(k));
+                if (marca[w] != epoca && ordre[w] > inferior) {
+                    marca[w] = epoca;
+                    cim = apilar(cim, w);
+                }
+            }
+        }
+        return nVisitats;
+    }
+
+    /**
+     * @brief Reassigna les posicions dels nodes afectats: els de darrere abans que els de davant, conservant l'ordre relatiu
+     * @pre afectats conté nDarrere nodes de darrere seguits de nDavant nodes de davant
+     * @post Les posicions dels nodes afectats són les mateixes que abans, repartides de manera que l'ordre és topològic
+     */
+    private void reordenar(int nDarrere, int nDavant) {
+        int total = nDarrere + nDavant;
+        long[] darrere = new long[nDarrere];
+        long[] davant = new long[nDavant];
+        int[] posicions = new int[total];
+        for (int i = 0; i < nDarrere; i++)
+            darrere[i] = ((long) ordre[afectats[i]] << 32) | afectats[i];
+        for (int i = 0; i < nDavant; i++)
+            davant[i] = ((long) ordre[afectats[nDarrere + i]] << 32) | afectats[nDarrere + i];
+        for (int i = 0; i < total; i++)
+            posicions[i] = ordre[afectats[i]];
+        Arrays.sort(darrere);
+        Arrays.sort(davant);
+        Arrays.sort(posicions);
+        for (int i = 0; i < nDarrere; i++)
+            ordre[(int) darrere[i]] = posicions[i];
+        for (int i = 0; i < nDavant; i++)
+            ordre[(int) davant[i]] = posicions[nDarrere + i];
+    }
+
+    /**
+     * @brief Apila w, ampliant la pila si cal
+     * @return int Nova mida de la pila
+     */
+    private int apilar(int cim, int w) {
+        if (cim == pila.length)
+            pila = Arrays.copyOf(pila, cim * 2);
+        pila[cim] = w;
+        return cim + 1;
+    }
+
+    /**
+     * @brief Garanteix que afectats té com a mínim mida posicions
+     */
+    private void assegurarAfectats(int mida) {
+        if (mida > afectats.length)
+            afectats = Arrays.copyOf(afectats, Math.max(mida, afectats.length * 2));
+    }
+}
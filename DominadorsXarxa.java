@@ -0,0 +1,238 @@
+//Natàlia Masgrau Vila
+/**
+ * @file DominadorsXarxa.java
+ * @brief Arbre de dominadors d'una component d'una xarxa de distribució d'aigua per saber quines aixetes aïllen quins terminals.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * @class DominadorsXarxa
+ * @brief Arbre de dominadors des d'un origen virtual connectat a tots els orígens oberts d'una component connexa.
+ *
+ * L'aigua només passa per nodes amb l'aixeta oberta i segueix el sentit de les canonades. Un node d domina
+ * un node v si tots els camins des dels orígens oberts fins a v passen per d: tancar d deixa v sense aigua.
+ * Els dominadors immediats es calculen amb l'algorisme iteratiu de Cooper, Harvey i Kennedy sobre el
+ * postordre d'un recorregut en profunditat fet amb el Recorregut de la xarxa. Els terminals es guarden en
+ * preordre de l'arbre de dominadors, de manera que els terminals dominats per un node ocupen un interval contigu.
+ * Els nodes amb aigua es numeren localment en aquest postordre, amb l'origen virtual a continuació, de manera que
+ * la feina i la memòria són proporcionals a la mida de la component i no a la de tota la xarxa. L'arbre es torna a
+ * calcular a la consulta següent quan s'afegeix un node o una canonada o s'obre o es tanca una aixeta; els canvis de
+ * cabal o de demanda no el modifiquen.
+ */
+public class DominadorsXarxa {
+
+    private final Xarxa xarxa;           ///< Xarxa de distribució d'aigua
+    private final Node_X referencia;     ///< Node que identifica la component
+    private long versio = -1;            ///< Versió de la topologia i de les aixetes per a la qual s'ha calculat l'arbre
+    private int arrel;                   ///< Identificador local de l'origen virtual
+    private int[] nodes;                 ///< Identificador dens de cada node amb aigua, en postordre
+    private long[] locals;               ///< Identificador dens (32 bits alts) i local de cada node amb aigua, ordenats
+    private int[] idom;                  ///< Dominador immediat de cada node, en identificadors locals
+    private int[] primerTerminal;        ///< Posició del primer terminal del subarbre de cada node a terminals
+    private int[] fiTerminals;           ///< Posició següent a l'últim terminal del subarbre de cada node a terminals
+    private final List<PuntTerminal> terminals = new ArrayList<>(); ///< Terminals amb aigua, en preordre de l'arbre de dominadors
+
+    /**
+     * @brief Constructor de DominadorsXarxa
+     * @param xarxa Xarxa de distribució d'aigua.
+     * @param node Node de la component connexa a analitzar.
+     * Pre: node pertany a xarxa.
+     * Post: Crea l'arbre de dominadors de la component connexa de node.
+     */
+    DominadorsXarxa(Xarxa xarxa, Node_X node) {
+        this.xarxa = xarxa;
+        this.referencia = node;
+        actualitzar();
+    }
+
+    /**
+     * @brief Retorna els terminals que es queden sense aigua si es tanca l'aixeta de node.
+     * @param node Node de la component.
+     * @return Llista no modificable de terminals, buida si a node ja no hi arriba aigua.
+     * Pre: ---
+     * Post: Retorna els terminals amb aigua dominats per node, node inclòs si és un terminal, en temps proporcional a la mida del resultat.
+     * @throws NoSuchElementException Si el node no pertany a la component.
+     */
+    public List<PuntTerminal> terminalsAillats(Node_X node) {
+        actualitzar();
+        int v = id(node);
+        if (v == -1)
+            return Collections.emptyList();
+        return Collections.unmodifiableList(terminals.subList(primerTerminal[v], fiTerminals[v]));
+    }
+
+    /**
+     * @brief Retorna els nodes que, si se'n tanca qualsevol, deixen el terminal sense aigua.
+     * @param terminal Terminal de la component.
+     * @return Llista de nodes des del terminal fins a l'origen, buida si al terminal ja no hi arriba aigua.
+     * Pre: ---
+     * Post: Retorna els dominadors del terminal, ell inclòs, en temps proporcional a la mida del resultat.
+     * @throws NoSuchElementException Si el terminal no pertany a la component.
+     */
+    public List<Node_X> nodesAillants(PuntTerminal terminal) {
+        actualitzar();
+        List<Node_X> resultat = new ArrayList<>();
+        int v = id(terminal);
+        if (v == -1)
+            return resultat;
+        IndexXarxa index = xarxa.index();
+        for (; v != arrel; v = idom[v])
+            resultat.add(index.node(nodes[v]));
+        return resultat;
+    }
+
+    /**
+     * @brief Retorna l'identificador local del node, o -1 si no hi arriba aigua.
+     * @throws NoSuchElementException Si el node no pertany a la component.
+     */
+    private int id(Node_X node) {
+        IndexXarxa index = xarxa.index();
+        int v = index.id(node.id());
+        if (v == -1 || index.node(v) != node || xarxa.component(node) != xarxa.component(referencia))
+            throw new NoSuchElementException("Error de configuració a l'opció: el node no pertany a la xarxa.");
+        int k = Arrays.binarySearch(locals, (long) v << 32);
+        if (k < 0)
+            k = -k - 1;
+        if (k == locals.length || (int) (locals[k] >>> 32) != v)
+            return -1;
+        return (int) locals[k];
+    }
+
+    /**
+     * @brief Torna a calcular l'arbre si la topologia o les aixetes de la xarxa han canviat.
+     * Pre: ---
+     * Post: L'arbre de dominadors correspon a la topologia i les aixetes actuals de la xarxa.
+     */
+    private void actualitzar() {
+        if (versio == xarxa.versioTopologia())
+            return;
+        versio = xarxa.versioTopologia();
+        IndexXarxa index = xarxa.index();
+        Recorregut recorregut = xarxa.recorregut();
+        int m = xarxa.nodesComponent(referencia);
+
+        nodes = new int[m + 1];
+        int[] local = new int[m];
+        int nOrdre = recorrerPostordre(index, recorregut, local);
+        arrel = nOrdre - 1;
+
+        // Fins al recorregut següent, numero(p) diu en quin ordre s'ha arribat a p, o -1 si no hi arriba aigua
+        idom = new int[nOrdre];
+        Arrays.fill(idom, -1);
+        idom[arrel] = arrel;
+        boolean canvi = true;
+        while (canvi) {
+            canvi = false;
+            for (int v = arrel - 1; v >= 0; v--) {
+                int w = nodes[v];
+                int nou = index.node(w) instanceof PuntOrigen ? arrel : -1;
+                for (int k = index.iniciEntrades(w); k < index.fiEntrades(w); k++) {
+                    int q = recorregut.numero(index.origen(index.entrada(k)));
+                    if (q == -1)
+                        continue;
+                    int p = local[q];
+                    if (idom[p] != -1)
+                        nou = nou == -1 ? p : interseccio(p, nou);
+                }
+                if (idom[v] != nou) {
+                    idom[v] = nou;
+                    canvi = true;
+                }
+            }
+        }
+
+        locals = new long[arrel];
+        for (int v = 0; v < arrel; v++)
+            locals[v] = (long) nodes[v] << 32 | v;
+        Arrays.sort(locals);
+        numerarTerminals(index);
+    }
+
+    /**
+     * @brief Recorre en profunditat els nodes oberts accessibles des dels orígens oberts de la component.
+     * @param index Índex d'adjacència de la xarxa.
+     * @param recorregut Recorregut de la xarxa.
+     * @param local Vector on es guarda l'identificador local de cada node segons el seu ordre d'arribada.
+     * @return Nombre de nodes visitats, origen virtual inclòs.
+     * Pre: nodes té mida m + 1 i local mida m, on m és la mida de la component.
+     * Post: nodes conté en postordre els nodes que reben aigua, i el seu identificador local és la posició a nodes.
+     */
+    private int recorrerPostordre(IndexXarxa index, Recorregut recorregut, int[] local) {
+        List<PuntOrigen> origens = xarxa.origensComponent(referencia);
+        int[] inicis = new int[origens.size()];
+        int nInicis = 0;
+        for (PuntOrigen origen : origens) {
+            if (origen.aixetaOberta())
+                inicis[nInicis++] = index.id(origen.id());
+        }
+        int[] nOrdre = {0};
+        recorregut.profunditat(Arrays.copyOf(inicis, nInicis), Recorregut.SORTIDES, new Recorregut.Visitant() {
+            @Override
+            public boolean admet(int w) {
+                return index.node(w).aixetaOberta();
+            }
+
+            @Override
+            public void sortir(int v, int e) {
+                local[recorregut.numero(v)] = nOrdre[0];
+                nodes[nOrdre[0]++] = v;
+            }
+        });
+        nodes[nOrdre[0]] = -1;
+        return nOrdre[0] + 1;
+    }
+
+    /**
+     * @brief Retorna l'avantpassat comú més proper de a i b a l'arbre de dominadors parcial.
+     */
+    private int interseccio(int a, int b) {
+        while (a != b) {
+            while (a < b)
+                a = idom[a];
+            while (b < a)
+                b = idom[b];
+        }
+        return a;
+    }
+
+    /**
+     * @brief Guarda els terminals en preordre de l'arbre de dominadors i l'interval de terminals de cada subarbre.
+     * @param index Índex d'adjacència de la xarxa.
+     * Pre: idom conté els dominadors immediats dels nodes amb aigua, en identificadors locals.
+     * Post: terminals, primerTerminal i fiTerminals estan calculats.
+     */
+    private void numerarTerminals(IndexXarxa index) {
+        // Terminals de cada subarbre, de baix a dalt: en postordre cada node va abans del seu dominador
+        int[] mida = new int[arrel + 1];
+        for (int v = 0; v < arrel; v++) {
+            if (index.node(nodes[v]) instanceof PuntTerminal)
+                mida[v]++;
+            mida[idom[v]] += mida[v];
+        }
+
+        // Interval de cada subarbre, de dalt a baix: cada fill ocupa el tros lliure següent del seu dominador
+        primerTerminal = new int[arrel + 1];
+        fiTerminals = new int[arrel + 1];
+        int[] lliure = new int[arrel + 1];
+        fiTerminals[arrel] = mida[arrel];
+        PuntTerminal[] preordre = new PuntTerminal[mida[arrel]];
+        for (int v = arrel - 1; v >= 0; v--) {
+            int p = idom[v];
+            primerTerminal[v] = primerTerminal[p] + lliure[p];
+            lliure[p] += mida[v];
+            fiTerminals[v] = primerTerminal[v] + mida[v];
+            Node_X node = index.node(nodes[v]);
+            if (node instanceof PuntTerminal) {
+                preordre[primerTerminal[v]] = (PuntTerminal) node;
+                lliure[v] = 1;
+            }
+        }
+        terminals.clear();
+        terminals.addAll(Arrays.asList(preordre));
+    }
+}
@@ -0,0 +1,137 @@
+//Natàlia Masgrau Vila
+/**
+ * @file ElementsCritics.java
+ * @brief Canonades i connexions d'una xarxa de distribució d'aigua que, si fallen, deixen terminals sense cap origen.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @class ElementsCritics
+ * @brief Ponts i punts d'articulació d'una component connexa, amb els terminals que deixa aïllats cadascun.
+ *
+ * Es calcula amb un únic recorregut en profunditat (algorisme de Tarjan, amb el Recorregut de la xarxa) sense tenir
+ * en compte el sentit de les canonades ni l'estat de les aixetes. Per a cada node es guarda el nombre de
+ * terminals i d'orígens del seu subarbre: quan una canonada o una connexió separa un tros de la component,
+ * els terminals d'aquest tros es queden aïllats si no hi ha cap origen. Els vectors s'indexen per l'ordre de
+ * descoberta de cada node, de manera que només ocupen la mida de la component. Cost O(N+E) de la component.
+ */
+public class ElementsCritics {
+
+    private final List<Pair<Canonada, Integer>> canonades = new ArrayList<>();  ///< Canonades crítiques i terminals que aïllen
+    private final List<Pair<Connexio, Integer>> connexions = new ArrayList<>(); ///< Connexions crítiques i terminals que aïllen
+
+    /**
+     * @brief Constructor de ElementsCritics
+     * @param x Xarxa de distribució d'aigua.
+     * @param node Node de la component connexa a analitzar.
+     * Pre: node pertany a la xarxa x.
+     * Post: Calcula les canonades i connexions crítiques de la component connexa de node.
+     */
+    ElementsCritics(Xarxa x, Node_X node) {
+        IndexXarxa index = x.index();
+        Recorregut recorregut = x.recorregut();
+        int m = x.nodesComponent(node);
+        // Vectors de la component indexats per l'ordre de descoberta de cada node
+        int[] nodes = new int[m];
+        int[] baix = new int[m];
+        int[] terminals = new int[m];
+        int[] origens = new int[m];
+        int[] terminalsSeparats = new int[m];  // terminals dels subarbres que se separen si falla el node
+        int[] origensSeparats = new int[m];    // orígens dels subarbres que se separen si falla el node
+        int[] aillatsSeparats = new int[m];    // terminals dels subarbres separats que no tenen cap origen
+        int[] canonadaPare = new int[m];
+
+        List<Integer> ponts = new ArrayList<>();
+        recorregut.profunditat(index.id(node.id()), Recorregut.AMBDUES, new Recorregut.Visitant() {
+            @Override
+            public void entrar(int v, int e) {
+                int i = recorregut.numero(v);
+                nodes[i] = v;
+                baix[i] = i;
+                canonadaPare[i] = e;
+                comptar(index.node(v), i, terminals, origens);
+            }
+
+            @Override
+            public void veiVisitat(int u, int w, int e) {
+                int i = recorregut.numero(u);
+                if (e != canonadaPare[i] && w != u)
+                    baix[i] = Math.min(baix[i], recorregut.numero(w));
+            }
+
+            @Override
+            public void sortir(int u, int e) {
+                if (e == -1)
+                    return;
+                int i = recorregut.numero(u);
+                int p = recorregut.numero(index.origen(e) == u ? index.desti(e) : index.origen(e));
+                baix[p] = Math.min(baix[p], baix[i]);
+                terminals[p] += terminals[i];
+                origens[p] += origens[i];
+                if (baix[i] > p)
+                    ponts.add(i);
+                if (baix[i] >= p) {
+                    terminalsSeparats[p] += terminals[i];
+                    origensSeparats[p] += origens[i];
+                    if (origens[i] == 0)
+                        aillatsSeparats[p] += terminals[i];
+                }
+            }
+        });
+
+        int totalTerminals = terminals[0];
+        int totalOrigens = origens[0];
+        if (totalOrigens == 0)
+            return;
+        for (int i : ponts) {
+            int aillats = origens[i] == 0 ? terminals[i] : (origens[i] == totalOrigens ? totalTerminals - terminals[i] : 0);
+            if (aillats > 0)
+                canonades.add(new Pair<>(index.canonada(canonadaPare[i]), aillats));
+        }
+        for (int i = 0; i < m; i++) {
+            Node_X n = index.node(nodes[i]);
+            if (!(n instanceof Connexio))
+                continue;
+            int aillats = aillatsSeparats[i];
+            if (origensSeparats[i] == totalOrigens)
+                aillats += totalTerminals - terminalsSeparats[i];
+            if (aillats > 0)
+                connexions.add(new Pair<>((Connexio) n, aillats));
+        }
+        canonades.sort((a, b) -> Integer.compare(b.agafarSegon(), a.agafarSegon()));
+        connexions.sort((a, b) -> Integer.compare(b.agafarSegon(), a.agafarSegon()));
+    }
+
+    /**
+     * @brief Retorna les canonades que, si fallen, deixen algun terminal sense cap origen.
+     * @return Llista no modificable de canonades amb el nombre de terminals que aïllen, de més a menys.
+     * Pre: ---
+     * Post: Retorna els ponts de la component que separen algun terminal de tots els orígens.
+     */
+    public List<Pair<Canonada, Integer>> canonades() {
+        return Collections.unmodifiableList(canonades);
+    }
+
+    /**
+     * @brief Retorna les connexions que, si fallen, deixen algun terminal sense cap origen.
+     * @return Llista no modificable de connexions amb el nombre de terminals que aïllen, de més a menys.
+     * Pre: ---
+     * Post: Retorna els punts d'articulació de la component que són connexions i separen algun terminal de tots els orígens.
+     */
+    public List<Pair<Connexio, Integer>> connexions() {
+        return Collections.unmodifiableList(connexions);
+    }
+
+    /**
+     * @brief Compta node, descobert en la posició i, com a terminal o com a origen del seu propi subarbre.
+     */
+    private static void comptar(Node_X node, int i, int[] terminals, int[] origens) {
+        if (node instanceof PuntTerminal)
+            terminals[i] = 1;
+        else if (node instanceof PuntOrigen)
+            origens[i] = 1;
+    }
+}
@@ -20,14 +20,7 @@ public abstract class GestorXarxes {
      * Post: Diu si la component connexa de la xarxa x que conté nodeOrigen té cicles.
      */
     public static boolean teCicles(Xarxa x, Node_X nodeOrigen) {
-        Set<Node_X> visitats = new HashSet<>();
-        Set<Node_X> pilaRecursio = new HashSet<>();
-        List<PuntOrigen> origens = obtenirOrigens(x, nodeOrigen);
-        boolean teCicles = false;
-        while (!teCicles && !origens.isEmpty()) {
-            teCicles = dfs(x, origens.remove(0), visitats, pilaRecursio);
-        }
-        return teCicles;
+        return x.teCicles(nodeOrigen);
     }
 
     /**
@@ -39,24 +32,7 @@ public abstract class GestorXarxes {
      * Post: Diu si la component connexa de la xarxa x que conté nodeOrigen és un arbre.
      */
     public static boolean esArbre(Xarxa x, PuntOrigen nodeOrigen) {
-        if (teCicles(x, nodeOrigen)) return false;
-        else {
-            Set<Node_X> visitats = new HashSet<>();
-            Queue<Node_X> cua = new LinkedList<>();
-            cua.add(nodeOrigen);
-            visitats.add(nodeOrigen);
-            while (!cua.isEmpty()) {
-                Node_X actual = cua.poll();
-                for (Node_X vei : obtenirVeins(x, actual)) {
-                    if (obtenirEntrades(x, vei).size() > 1) return false;
-                    if (!visitats.contains(vei)) {
-                        visitats.add(vei);
-                        cua.add(vei);
-                    }
-                }
-            }
-            return true;
-        }
+        return x.esArbre(nodeOrigen);
     }
 
     /**
@@ -69,26 +45,7 @@ public abstract class GestorXarxes {
      * Post: Retorna el cabal mínim que hi hauria d’haver entre tots els nodes d’origen de la component connexa de la xarxa x que conté nodeOrigen, per tal que cap node terminal de la mateixa component, d'entre aquells on arribi aigua, no rebi menys d'un percentatgeDemandaSatisfet% de la seva demanda.
      */
     public static float cabalMinim(Xarxa x, PuntOrigen nodeOrigen, float percentatgeDemandaSatisfet) {
-        float cabalMinim = 0;
-        Set<Node_X> visitats = new HashSet<>();
-        Queue<Node_X> cua = new LinkedList<>();
-        cua.add(nodeOrigen);
-        while (!cua.isEmpty()) {
-            Node_X actual = cua.poll();
-            visitats.add(actual);
-            if (actual instanceof PuntTerminal) {
-                PuntTerminal terminal = (PuntTerminal) actual;
-                float demanda = terminal.demanda_actual();
-                float demandaMinima = demanda * percentatgeDemandaSatisfet / 100;
-                cabalMinim += demandaMinima;
-            }
-            for (Node_X vei : obtenirVeins(x, actual)) {
-                if (!visitats.contains(vei) && vei.aixetaOberta()) {
-                    cua.add(vei);
-                }
-            }
-        }
-        return cabalMinim;
+        return x.demandaAccessible(nodeOrigen) * percentatgeDemandaSatisfet / 100;
     }
 
     /**
@@ -101,43 +58,9 @@ public abstract class GestorXarxes {
      */
     public static Set<Canonada> excesCabal(Xarxa x, Set<Canonada> cjtCanonades) {
         Set<Canonada> canonadesExcedides = new HashSet<>();
-        List<PuntTerminal> terminals = new ArrayList<>();
-        obtenirTerminals(x, terminals);
-        List<PuntOrigen> origens = new ArrayList<>();
-
-        Map<Canonada, Float> demandesCanonades = new HashMap<>();
-        Map<Node_X, Float> demandesNodes = new HashMap<>();
-        Queue<Node_X> cuaDemandes = new LinkedList<>(terminals);
-        Set<Node_X> encuatsDemanda = new HashSet<>();
-        guardarDemandes(terminals, demandesNodes);
-        while (!cuaDemandes.isEmpty()) {
-            Node_X actual = cuaDemandes.poll();
-            if(actual instanceof PuntOrigen) {
-                origens.add((PuntOrigen) actual);
-            }
-            if (demandesNodes.containsKey(actual)) {
-                propagarDemanda(x, actual, demandesNodes, demandesCanonades, cuaDemandes, encuatsDemanda);
-            } else {
-                cuaDemandes.add(actual);
-            }
-        }
-
-        Map<Canonada, Float> cabalsCanonades = new HashMap<>();
-        Map<Node_X, Float> cabalsNodes = new HashMap<>();
-        Queue<Node_X> cuaCabals = new LinkedList<>(origens);
-        Set<Node_X> encuatsCabal = new HashSet<>();
-        guardarCabals(origens, cabalsNodes);
-        while (!cuaCabals.isEmpty()) {
-            Node_X actual = cuaCabals.poll();
-            if (cabalsNodes.containsKey(actual)) {
-                repartirCabal(actual, x, inferiors(x, actual), cabalsNodes, cabalsCanonades, cuaCabals, encuatsCabal, demandesCanonades);
-            } else {
-                cuaCabals.add(actual);
-            }
-        }
-
+        Map<Canonada, Float> cabalsCanonades = x.cabalsDemandaPlena();
         for (Canonada canonada : cjtCanonades) {
-            if (cabalsCanonades.get(canonada) > canonada.capacitat()) {
+            if (cabalsCanonades.getOrDefault(canonada, 0f) > canonada.capacitat()) {
                 canonadesExcedides.add(canonada);
             }
         }
@@ -153,12 +76,53 @@ public abstract class GestorXarxes {
      * Post: Retorna el conjunt de nodes n de la xarxa x més propers (seguint la topologia) als terminals t de aiguaArriba, tals que per sota de n la situació actual de la xarxa és incoherent amb aiguaArriba.
      */
     public static Set<Node_X> aixetesTancar(Xarxa x, Map<PuntTerminal, Boolean> aiguaArriba) {
+        IndexXarxa index = x.index();
+        int n = index.nNodes();
+        // 0: sense informació, 1: hi arriba aigua, 2: no hi arriba aigua
+        byte[] informe = new byte[n];
+        for (Map.Entry<PuntTerminal, Boolean> entry : aiguaArriba.entrySet()) {
+            informe[index.id(entry.getKey().id())] = (byte) (entry.getValue() ? 1 : 2);
+        }
+
         Set<Node_X> nodesTancar = new HashSet<>();
-        Map<Node_X, Boolean> incoherents = new HashMap<>();
-        mirarIncoherents(x, aiguaArriba, incoherents);
-        for(Node_X node : incoherents.keySet()) {
-            if(incoherents.get(node)) {
-                tancarNode(x, node, incoherents, nodesTancar);
+        Set<Integer> componentsFetes = new HashSet<>();
+        int[] preordre = new int[n];
+        int[] pare = new int[n];
+        boolean[] bloquejat = new boolean[n];
+        boolean[] coherent = new boolean[n];
+        boolean[] incoherent = new boolean[n];
+        int[] mixtSuperior = new int[n];
+        for (PuntTerminal terminal : aiguaArriba.keySet()) {
+            if (!componentsFetes.add(x.component(terminal))) {
+                continue;
+            }
+            int mida = recorrerArbre(x, arrel(index, index.id(terminal.id())), preordre, pare, bloquejat);
+
+            // De baix a dalt: quins nodes tenen terminals coherents i incoherents per sota
+            for (int i = mida - 1; i >= 0; i--) {
+                int v = preordre[i];
+                if (informe[v] != 0) {
+                    boolean arribaAigua = informe[v] == 1;
+                    if (bloquejat[v] == arribaAigua) {
+                        incoherent[v] = true;
+                    } else {
+                        coherent[v] = true;
+                    }
+                }
+                if (pare[v] != -1) {
+                    coherent[pare[v]] |= coherent[v];
+                    incoherent[pare[v]] |= incoherent[v];
+                }
+            }
+
+            // De dalt a baix: el superior més proper amb terminals coherents i incoherents per sota
+            for (int i = 0; i < mida; i++) {
+                int v = preordre[i];
+                int p = pare[v];
+                mixtSuperior[v] = p == -1 ? -1 : (coherent[p] && incoherent[p] ? p : mixtSuperior[p]);
+                if (informe[v] != 0 && incoherent[v] && mixtSuperior[v] != -1) {
+                    nodesTancar.add(index.node(mixtSuperior[v]));
+                }
             }
         }
         return nodesTancar;
@@ -173,688 +137,159 @@ public abstract class GestorXarxes {
      * Post: Retorna una llista amb els nodes de cjtNodes ordenats segons la seva distància a c i, en cas d'empat, en ordre alfabètic dels seus identificadors.
      */
     public static List<Node_X> nodesOrdenats(Coordenades c, Set<Node_X> cjtNodes) {
-        List<Node_X> nodesOrdenats = new ArrayList<>(cjtNodes);
-        nodesOrdenats.sort((node1, node2) -> {
-            double distancia1 = node1.coordenades().distancia(c);
-            double distancia2 = node2.coordenades().distancia(c);
-            if (distancia1 < distancia2) {
-                return -1;
-            } else if (distancia1 > distancia2) {
-                return 1;
-            } else {
-                return node1.id().compareTo(node2.id());
-            }
+        Node_X[] nodes = cjtNodes.toArray(new Node_X[0]);
+        Coordenades[] coordenades = new Coordenades[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            coordenades[i] = nodes[i].coordenades();
+        }
+        // Cada distància es calcula una sola vegada, abans d'ordenar
+        double[] distancies = new double[nodes.length];
+        c.distancies(Coordenades.empaquetar(coordenades), distancies);
+        Integer[] ordre = new Integer[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            ordre[i] = i;
+        }
+        Arrays.sort(ordre, (i, j) -> {
+            int comparacio = Double.compare(distancies[i], distancies[j]);
+            return comparacio != 0 ? comparacio : nodes[i].id().compareTo(nodes[j].id());
         });
-        return nodesOrdenats;
-    }
-
-    /**
-     * @brief Dibuixa el flux màxim que pot circular per la xarxa x, tenint en compte la capacitat de les canonades.
-     * @param x Xarxa de distribució d'aigua.
-     * @param nodeOrigen Node origen de la xarxa.
-     * Pre: nodeOrigen pertany a la xarxa x.
-     * Post: Dibuixa el flux màxim que pot circular per la xarxa x, tenint en compte la capacitat de les canonades.
-     */
-    public static void fluxMaxim(Xarxa x, PuntOrigen nodeOrigen) {
-        Xarxa xCopia = new Xarxa(x);
-        List<PuntTerminal> terminals = terminals(x, nodeOrigen);
-        List<PuntOrigen> origens = origens(x, nodeOrigen);
-        PuntTerminal superTerminal = new PuntTerminal("superTerminal", new Coordenades(0, 0), 0);
-        PuntOrigen superOrigen = new PuntOrigen("superOrigen", new Coordenades(0, 0));
-        xCopia.afegir(superTerminal);
-        xCopia.afegir(superOrigen);
-        for (PuntTerminal terminal : terminals) {
-            xCopia.connectarAmbCanonada(terminal, superTerminal, Float.POSITIVE_INFINITY, true);
-        }
-        for (PuntOrigen origen : origens) {
-            xCopia.connectarAmbCanonada(superOrigen, origen, Float.POSITIVE_INFINITY, false);
-        }
-        fordFulkerson(xCopia, superOrigen, superTerminal);
-        xCopia.dibuixar(nodeOrigen, true);
-    }
-
-    /**
-     * @brief Diu si hi ha un cicle a la component connexa de la xarxa x que conté actual.
-     * @param x Xarxa de distribució d'aigua.
-     * @param actual Node actual.
-     * @param visitats Conjunt de nodes visitats.
-     * @param pilaRecursio Conjunt de nodes en la recursió.
-     * @return True si hi ha un cicle, false altrament.
-     * Pre: actual és un node de la xarxa x, visitats conté els nodes visitats fins ara, pilaRecursio conté els nodes en el camí de la recursió actual.
-     * Post: Diu si hi ha un cicle a la component connexa de la xarxa x que conté actual.
-     */
-    private static boolean dfs(Xarxa x, Node_X actual, Set<Node_X> visitats, Set<Node_X> pilaRecursio) {
-        if (pilaRecursio.contains(actual)) {
-            return true;
-        }
-        if (visitats.contains(actual)) {
-            return false;
+        List<Node_X> nodesOrdenats = new ArrayList<>(nodes.length);
+        for (int i : ordre) {
+            nodesOrdenats.add(nodes[i]);
         }
-
-        visitats.add(actual);
-        pilaRecursio.add(actual);
-
-        for (Node_X vei : obtenirInferiors(x, actual)) {
-            if (dfs(x, vei, visitats, pilaRecursio)) {
-                return true;
-            }
-        }
-
-        pilaRecursio.remove(actual);
-        return false;
-    }
-
-    /**
-     * @brief Retorna un conjunt amb els veïns de node.
-     * @param x Xarxa de distribució d'aigua.
-     * @param node Node de la xarxa.
-     * @return Conjunt de veïns de node.
-     * Pre: node és un node de la xarxa x.
-     * Post: Retorna un conjunt amb els veïns de node (només sortides perquè la xarxa és dirigida).
-     */
-    private static Set<Node_X> obtenirVeins(Xarxa x, Node_X node) {
-        Set<Node_X> veins = new HashSet<>();
-        Iterator<Canonada> canonades = x.sortides(node);
-        while (canonades.hasNext()) {
-            veins.add(canonades.next().node2());
-        }
-        canonades = x.entrades(node);
-        while (canonades.hasNext()) {
-            veins.add(canonades.next().node1());
-        }
-        return veins;
-    }
-
-    /**
-     * @brief Propaga la demanda del node actual cap amunt, actualitzant les demandes i els cabals de les canonades.
-     * @param x Xarxa de distribució d'aigua.
-     * @param actual Node actual.
-     * @param demandesNodes Map de demandes de nodes.
-     * @param demandesCanonades Map de demandes de canonades.
-     * @param cua Cua de nodes.
-     * @param encuats Conjunt de nodes encuats.
-     * Pre: actual és un node de la xarxa x, demandesNodes conté la demanda de tots els nodes de la xarxa x fins al punt on esteem, cabalsCanonades conté els cabals de totes les canonades de la xarxa x fins al punt on esteem, i cua és una cua de nodes.
-     * Post: Propaga la demanda del node actual cap amunt, actualitzant les demandes i els cabals de les canonades.
-     */
-    private static void propagarDemanda(Xarxa x, Node_X actual, Map<Node_X, Float> demandesNodes, Map<Canonada, Float> demandesCanonades, Queue<Node_X> cua, Set<Node_X> encuats) {
-        Map<Node_X, Canonada> superiors = obtenirSuperiors(x, actual);
-        eliminarTancats(superiors, demandesNodes, demandesCanonades, cua, encuats);
-        float demanda = demandesNodes.get(actual);
-        repartirDemanda(demanda, x, superiors, demandesNodes, demandesCanonades, cua, encuats);
-    }
-
-    /**
-     * @brief Retorna un mapa amb els nodes superiors d'actual com a claus i la capacitat de la canonada que els connecta com a valor.
-     * @param x Xarxa de distribució d'aigua.
-     * @param actual Node actual.
-     * @return Map de nodes superiors i les seves canonades.
-     * Pre: actual és un node de la xarxa x.
-     * Post: Retorna un mapa amb els nodes superiors d'actual com a claus i la capacitat de la canonada que els connecta com a valor.
-     */
-    private static Map<Node_X, Canonada> obtenirSuperiors(Xarxa x, Node_X actual) {
-        Map<Node_X, Canonada> superiors = new HashMap<>();
-        Iterator<Canonada> entrades = x.entrades(actual);
-        while (entrades.hasNext()) {
-            Canonada canonada = entrades.next();
-            superiors.put(canonada.node1(), canonada);
-        }
-        return superiors;
-    }
-
-    /**
-     * @brief Retorna un mapa amb els nodes inferiors d'actual com a claus i la capacitat de la canonada que els connecta com a valor.
-     * @param x Xarxa de distribució d'aigua.
-     * @param actual Node actual.
-     * @return Map de nodes inferiors i les seves canonades.
-     * Pre: actual és un node de la xarxa x.
-     * Post: Retorna un mapa amb els nodes inferiors d'actual com a claus i la capacitat de la canonada que els connecta com a valor.
-     */
-    private static Map<Node_X, Canonada> inferiors(Xarxa x, Node_X actual) {
-        Map<Node_X, Canonada> inferiors = new HashMap<>();
-        Iterator<Canonada> sortides = x.sortides(actual);
-        while (sortides.hasNext()) {
-            Canonada canonada = sortides.next();
-            inferiors.put(canonada.node2(), canonada);
-        }
-        return inferiors;
-    }
-
-    /**
-     * @brief Elimina els nodes tancats de superiors, actualitzant les demandes i els cabals de les canonades.
-     * @param superiors Map de nodes superiors i les seves canonades.
-     * @param demandesNodes Map de demandes de nodes.
-     * @param cabalsCanonades Map de cabals de canonades.
-     * @param cua Cua de nodes.
-     * @param encuats Conjunt de nodes encuats.
-     * Pre: superiors conté els nodes superiors d'un node actual, demandesNodes conté la demanda de tots els nodes de la xarxa x fins al punt on esteem, cabalsCanonades conté els cabals de totes les canonades de la xarxa x fins al punt on esteem, i cua és una cua de nodes.
-     * Post: Elimina els nodes tancats de superiors, actualitzant les demandes i els cabals de les canonades.
-     */
-    private static void eliminarTancats(Map<Node_X, Canonada> superiors, Map<Node_X, Float> demandesNodes, Map<Canonada, Float> cabalsCanonades, Queue<Node_X> cua, Set<Node_X> encuats) {
-        Iterator<Map.Entry<Node_X, Canonada>> it = superiors.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Node_X, Canonada> entry = it.next();
-            Node_X node = entry.getKey();
-            Canonada canonada = entry.getValue();
-            if (!node.aixetaOberta()) {
-                demandesNodes.put(node, 0f);
-                cabalsCanonades.put(canonada, 0f);
-                if (!encuats.contains(node)) {
-                    cua.add(node);
-                    encuats.add(node);
-                }
-                it.remove();
-            }
-        }
-    }
-
-    /**
-     * @brief Reparteix la demanda entre els nodes superiors no tancats, actualitzant les demandes i els cabals de les canonades.
-     * @param demanda Demanda actual.
-     * @param x Xarxa de distribució d'aigua.
-     * @param superiors Map de nodes superiors i les seves canonades.
-     * @param demandesNodes Map de demandes de nodes.
-     * @param cabalsCanonades Map de cabals de canonades.
-     * @param cua Cua de nodes.
-     * @param encuats Conjunt de nodes encuats.
-     * Pre: superiors conté els nodes superiors d'un node actual, demandesNodes conté la demanda de tots els nodes de la xarxa x fins al punt on esteem, cabalsCanonades conté els cabals de totes les canonades de la xarxa x fins al punt on esteem, i cua és una cua de nodes.
-     * Post: Reparteix la demanda entre els nodes superiors no tancats, actualitzant les demandes i els cabals de les canonades.
-     */
-    private static void repartirDemanda(float demanda, Xarxa x, Map<Node_X, Canonada> superiors, Map<Node_X, Float> demandesNodes, Map<Canonada, Float> cabalsCanonades, Queue<Node_X> cua, Set<Node_X> encuats) {
-        float totalCapacitat = 0;
-        for (Canonada canonada : superiors.values()) {
-            totalCapacitat += canonada.capacitat();
-        }
-        for (Map.Entry<Node_X, Canonada> entry : superiors.entrySet()) {
-            float capacitat = entry.getValue().capacitat();
-            float cabal = (demanda * capacitat) / totalCapacitat;
-            cabalsCanonades.put(entry.getValue(), cabal);
-            Node_X superior = entry.getKey();
-            if (!encuats.contains(superior)) {
-                cua.add(superior);
-                encuats.add(superior);
-            }
-            List<Canonada> sortides = obtenirSortides(x, entry.getKey());
-            boolean sabemSortides = true;
-            float demandaNode = 0;
-            for (Canonada sortida : sortides) {
-                if (!cabalsCanonades.containsKey(sortida)) {
-                    sabemSortides = false;
-                    break;
-                }
-                demandaNode += cabalsCanonades.getOrDefault(sortida, 0.0f);
-            }
-            if (sabemSortides) {
-                demandesNodes.put(entry.getKey(), demandaNode);
-            }
-        }
-    }
-
-    /**
-     * @brief Reparteix el cabal entre els nodes inferiors, actualitzant els cabals de les canonades.
-     * @param actual Node actual.
-     * @param x Xarxa de distribució d'aigua.
-     * @param inferiors Map de nodes inferiors i les seves canonades.
-     * @param cabalsNodes Map de cabals de nodes.
-     * @param cabalsCanonades Map de cabals de canonades.
-     * @param cuaCabals Cua de nodes.
-     * @param encuatsCabal Conjunt de nodes encuats.
-     * @param demandesCanonades Map de demandes de canonades.
-     * Pre: actual és un node de la xarxa x, inferiors conté els nodes inferiors d'un node actual, cabalsNodes conté els cabals de tots els nodes de la xarxa x fins al punt on esteem, cabalsCanonades conté els cabals de totes les canonades de la xarxa x fins al punt on esteem, cuaCabals és una cua de nodes, encuatsCabal és un conjunt de nodes i demandesCanonades conté les demandes de tots els nodes de la xarxa x fins al punt on esteem.
-     * Post: Reparteix el cabal entre els nodes inferiors, actualitzant els cabals de les canonades.
-     */
-    private static void repartirCabal(Node_X actual, Xarxa x, Map<Node_X, Canonada> inferiors, Map<Node_X, Float> cabalsNodes, Map<Canonada, Float> cabalsCanonades, Queue<Node_X> cuaCabals, Set<Node_X> encuatsCabal, Map<Canonada, Float> demandesCanonades) {
-        float totalDemanda = 0;
-        for (Canonada canonada : obtenirSortides(x, actual)) {
-            totalDemanda += demandesCanonades.get(canonada);
-        }
-        for(Map.Entry<Node_X, Canonada> entry : inferiors.entrySet()) {
-            float demanda = demandesCanonades.get(entry.getValue());
-            float cabal = (cabalsNodes.get(actual) * demanda) / totalDemanda;
-            cabalsCanonades.put(entry.getValue(), cabal);
-            Node_X inferior = entry.getKey();
-            if(!encuatsCabal.contains(inferior)) {
-                cuaCabals.add(inferior);
-                encuatsCabal.add(inferior);
-            }
-            List<Canonada> entrades = obtenirEntrades(x, entry.getKey());
-            boolean sabemEntrades = true;
-            float cabalNode = 0;
-            for(Canonada entrada : entrades) {
-                if(!cabalsCanonades.containsKey(entrada)) {
-                    sabemEntrades = false;
-                    break;
-                }
-                cabalNode += cabalsCanonades.getOrDefault(entrada, 0.0f);
-            }
-            if(sabemEntrades) {
-                cabalsNodes.put(entry.getKey(), cabalNode);
-            }
-        }
-    }
-
-    /**
-     * @brief Retorna una llista amb les canonades de sortida de node.
-     * @param x Xarxa de distribució d'aigua.
-     * @param node Node de la xarxa.
-     * @return Llista de canonades de sortida.
-     * Pre: node és un node de la xarxa x.
-     * Post: Retorna una llista amb les canonades de sortida de node.
-     */
-    private static List<Canonada> obtenirSortides(Xarxa x, Node_X node) {
-        List<Canonada> sortides = new ArrayList<>();
-        Iterator<Canonada> sortidesIt = x.sortides(node);
-        while (sortidesIt.hasNext()) {
-            sortides.add(sortidesIt.next());
-        }
-        return sortides;
+        return nodesOrdenats;
     }
 
     /**
-     * @brief Retorna una llista amb les canonades d'entrada de node.
-     * @param x Xarxa de distribució d'aigua.
-     * @param node Node de la xarxa.
-     * @return Llista de canonades d'entrada.
-     * Pre: node és un node de la xarxa x.
-     * Post: Retorna una llista amb les canonades d'entrada de node.
+     * @brief Retorna els k nodes de cjtNodes més propers a c, ordenats com a nodesOrdenats.
+     * @param c Coordenades de referència.
+     * @param cjtNodes Conjunt de nodes.
+     * @param k Nombre màxim de nodes; si k <= 0 no hi ha límit.
+     * @return Llista dels com a molt k primers nodes de nodesOrdenats(c, cjtNodes).
+     * Pre: ---
+     * Post: Retorna els k nodes més propers a c sense ordenar tot el conjunt, en temps O(n log k) i memòria O(k).
      */
-    private static List<Canonada> obtenirEntrades(Xarxa x, Node_X node) {
-        List<Canonada> entrades = new ArrayList<>();
-        Iterator<Canonada> entradesIt = x.entrades(node);
-        while (entradesIt.hasNext()) {
-            entrades.add(entradesIt.next());
+    public static List<Node_X> nodesOrdenats(Coordenades c, Collection<Node_X> cjtNodes, int k) {
+        SeleccioPropers seleccio = new SeleccioPropers(c, k);
+        for (Node_X node : cjtNodes) {
+            seleccio.afegir(node);
         }
-        return entrades;
+        return seleccio.ordenats();
     }
 
     /**
-     * @brief Aplica l'algorisme de Ford-Fulkerson per trobar el flux màxim.
+     * @brief Mostra i dibuixa el flux màxim que pot circular per la xarxa x, tenint en compte la capacitat de les canonades.
      * @param x Xarxa de distribució d'aigua.
      * @param nodeOrigen Node origen de la xarxa.
-     * @param superTerminal Node superTerminal.
-     * Pre: nodeOrigen i superTerminal pertanyen a la xarxa x.
-     * Post: Aplica l'algorisme de Ford-Fulkerson per trobar el flux màxim.
+     * Pre: nodeOrigen pertany a la xarxa x.
+     * Post: Mostra el flux màxim total i dibuixa el flux màxim que pot circular per la xarxa x.
      */
-    private static void fordFulkerson(Xarxa x, PuntOrigen nodeOrigen, PuntTerminal superTerminal) {
-        float fluxTotal = 0;
-
-        List<Node_X> cami = trobarCami(x, nodeOrigen, superTerminal);
-        while (!cami.isEmpty()) {
-            float fluxMaxim = fluxMaximCami(x, cami);
-            System.out.println("Flux màxim del camí: " + fluxMaxim);
-
-            fluxTotal += fluxMaxim;
-
-            actualitzarCapacitats(x, cami, fluxMaxim);
-
-            cami = trobarCami(x, nodeOrigen, superTerminal);
-        }
-
-        System.out.println("Flux màxim total: " + fluxTotal);
+    public static void fluxMaxim(Xarxa x, PuntOrigen nodeOrigen) {
+        ResultatFluxMaxim resultat = calcularFluxMaxim(x, nodeOrigen, false);
+        System.out.println("Flux màxim total: " + resultat.fluxTotal());
+        x.dibuixarFluxMaxim(nodeOrigen, resultat.fluxos());
     }
 
     /**
-     * @brief Retorna una llista amb els nodes del camí de nodeOrigen a superTerminal, o una llista buida si no hi ha cap camí.
+     * @brief Calcula el flux màxim que pot circular des dels orígens fins als terminals de la component connexa de nodeOrigen.
      * @param x Xarxa de distribució d'aigua.
      * @param nodeOrigen Node origen de la xarxa.
-     * @param superTerminal Node superTerminal.
-     * @return Llista de nodes del camí.
-     * Pre: nodeOrigen i superTerminal pertanyen a la xarxa x.
-     * Post: Retorna una llista amb els nodes del camí de nodeOrigen a superTerminal, o una llista buida si no hi ha cap camí.
-     */
-    private static List<Node_X> trobarCami(Xarxa x, PuntOrigen nodeOrigen, PuntTerminal superTerminal) {
-        Map<Node_X, Node_X> predecessors = new HashMap<>();
-        Queue<Node_X> cua = new LinkedList<>();
-        cua.add(nodeOrigen);
-        predecessors.put(nodeOrigen, null);
-
-        while (!cua.isEmpty()) {
-            Node_X actual = cua.poll();
-
-            if (actual.equals(superTerminal)) {
-                List<Node_X> cami = new LinkedList<>();
-                for (Node_X node = superTerminal; node != null; node = predecessors.get(node)) {
-                    cami.add(0, node);
-                }
-                return cami;
-            }
-
-            for (Node_X vei : obtenirVeins(x, actual)) {
-                if (!predecessors.containsKey(vei) && vei.aixetaOberta() && capacitatCanonada(x, actual, vei) > 0) {
-                    predecessors.put(vei, actual);
-                    cua.add(vei);
-                }
-            }
-        }
-        return new ArrayList<>();
-    }
-
-    /**
-     * @brief Retorna el flux màxim del camí.
-     * @param x Xarxa de distribució d'aigua.
-     * @param cami Llista de nodes del camí.
-     * @return Flux màxim del camí.
-     * Pre: cami conté els nodes d'un camí de la xarxa x.
-     * Post: Retorna el flux màxim del camí.
-     */
-    private static float fluxMaximCami(Xarxa x, List<Node_X> cami) {
-        float fluxMaxim = Float.POSITIVE_INFINITY;
-        for (int i = 0; i < cami.size() - 1; i++) {
-            float capacitat = capacitatCanonada(x, cami.get(i), cami.get(i + 1));
-            if (capacitat <= 0) {
-                throw new IllegalArgumentException("Capacitat " + capacitat + " no valida per al camí");
-            }
-            if (capacitat < fluxMaxim) {
-                fluxMaxim = capacitat;
-            }
-        }
-        return fluxMaxim;
-    }
-
-    /**
-     * @brief Actualitza les capacitats de les canonades del camí.
-     * @param x Xarxa de distribució d'aigua.
-     * @param cami Llista de nodes del camí.
-     * @param fluxMaxim Flux màxim del camí.
-     * Pre: cami conté els nodes d'un camí de la xarxa x i fluxMaxim és el flux màxim del camí.
-     * Post: Actualitza les capacitats de les canonades del camí.
-     */
-    private static void actualitzarCapacitats(Xarxa x, List<Node_X> cami, float fluxMaxim) {
-        for (int i = 0; i < cami.size() - 1; i++) {
-            Canonada canonada = trobarCanonada(x, cami.get(i), cami.get(i + 1));
-            if (canonada != null) {
-                float novaCapacitat = canonada.capacitat() - fluxMaxim;
-                canonada.actualitzarCapacitat(novaCapacitat);
-            } else {
-                System.out.println("Error: No s'ha trobat la canonada que connecta " + cami.get(i).id() + " amb " + cami.get(i + 1).id());
-            }
-        }
-    }
-
-    /**
-     * @brief Retorna la canonada que connecta node1 i node2.
-     * @param x Xarxa de distribució d'aigua.
-     * @param node1 Node origen.
-     * @param node2 Node destí.
-     * @return Canonada que connecta node1 i node2.
-     * Pre: node1 i node2 són dos nodes de la xarxa x connectats per una canonada.
-     * Post: Retorna la canonada que connecta node1 i node2.
-     */
-    private static Canonada trobarCanonada(Xarxa x, Node_X node1, Node_X node2) {
-        Iterator<Canonada> sortides = x.sortides(node1);
-        while (sortides.hasNext()) {
-            Canonada canonada = sortides.next();
-            if (canonada.node2() == node2) {
-                return canonada;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * @brief Retorna la capacitat de la canonada que connecta node1 i node2.
-     * @param x Xarxa de distribució d'aigua.
-     * @param node1 Node origen.
-     * @param node2 Node destí.
-     * @return Capacitat de la canonada.
-     * Pre: node1 i node2 són dos nodes de la xarxa x connectats per una canonada.
-     * Post: Retorna la capacitat de la canonada que connecta node1 i node2.
-     */
-    private static float capacitatCanonada(Xarxa x, Node_X node1, Node_X node2) {
-        Iterator<Canonada> sortides = x.sortides(node1);
-        while (sortides.hasNext()) {
-            Canonada canonada = sortides.next();
-            if (canonada.node2() == node2) {
-                return canonada.capacitat();
-            }
-        }
-        return 0;
-    }
-
-    /**
-     * @brief Omple el mapa incoherents amb els nodes incoherents de la xarxa x.
-     * @param x Xarxa de distribució d'aigua.
-     * @param aiguaArriba Map que indica si arriba aigua als terminals.
-     * @param incoherents Map de nodes incoherents.
-     * Pre: Tots els terminals d'aiguaArriba pertanyen a la xarxa x, aiguaArriba.get(t) indica si arriba aigua a t, i la xarxa x té forma d'arbre.
-     * Post: Omple el mapa incoherents amb els nodes incoherents de la xarxa x.
-     */
-    private static void mirarIncoherents(Xarxa x, Map<PuntTerminal, Boolean> aiguaArriba, Map<Node_X, Boolean> incoherents) {
-        for (Map.Entry<PuntTerminal, Boolean> entry : aiguaArriba.entrySet()) {
-            boolean aixetaTancada = false;
-            Node_X node = entry.getKey();
-            while (node != null && !aixetaTancada) {
-                if (!node.aixetaOberta()) {
-                    aixetaTancada = true;
-                }
-                node = superior(x, node);
-            }
-            if (aixetaTancada && entry.getValue()) {
-                incoherents.put(entry.getKey(), true);
-            } else if (!aixetaTancada && !entry.getValue()) {
-                incoherents.put(entry.getKey(), true);
-            } else {
-                incoherents.put(entry.getKey(), false);
-            }
-        }
-    }
-
-    /**
-     * @brief Retorna el node superior d'actual.
-     * @param x Xarxa de distribució d'aigua.
-     * @param actual Node actual.
-     * @return Node superior.
-     * Pre: la xarxa x te forma d'arbre i actual és un node de la xarxa x.
-     * Post: Retorna el node superior d'actual.
+     * @param registrarCamins Si és cert, el resultat inclou el flux de cada camí augmentant.
+     * @return Resultat amb el flux màxim total i el flux de cada canonada.
+     * Pre: nodeOrigen pertany a la xarxa x.
+     * Post: Retorna el flux màxim de la component connexa de nodeOrigen; la xarxa no es modifica.
      */
-    private static Node_X superior(Xarxa x, Node_X actual) {
-        Node_X superior = null;
-        Iterator<Canonada> entrades = x.entrades(actual);
-        while (entrades.hasNext()) {
-            superior = entrades.next().node1();
-        }
-        return superior;
+    public static ResultatFluxMaxim calcularFluxMaxim(Xarxa x, PuntOrigen nodeOrigen, boolean registrarCamins) {
+        XarxaResidual residual = new XarxaResidual(x, nodeOrigen);
+        return residual.fluxMaxim(registrarCamins);
     }
 
     /**
-     * @brief Retorna una llista amb els nodes inferiors d'actual.
+     * @brief Obre una sessió de flux màxim sobre la component connexa de nodeOrigen per recalcular-lo després de canvis.
      * @param x Xarxa de distribució d'aigua.
-     * @param actual Node actual.
-     * @return Llista de nodes inferiors.
-     * Pre: actual és un node de la xarxa x.
-     * Post: Retorna una llista amb els nodes inferiors d'actual.
+     * @param nodeOrigen Node origen de la xarxa.
+     * @return Sessió amb el flux màxim inicial ja calculat.
+     * Pre: nodeOrigen pertany a la xarxa x.
+     * Post: Retorna una sessió de flux màxim de la component connexa de nodeOrigen; la xarxa no es modifica.
      */
-    private static List<Node_X> obtenirInferiors(Xarxa x, Node_X actual) {
-        List<Node_X> inferiors = new ArrayList<>();
-        Iterator<Canonada> sortides = x.sortides(actual);
-        while (sortides.hasNext()) {
-            inferiors.add(sortides.next().node2());
-        }
-        return inferiors;
+    public static SessioFluxMaxim sessioFluxMaxim(Xarxa x, PuntOrigen nodeOrigen) {
+        return new SessioFluxMaxim(x, new XarxaResidual(x, nodeOrigen));
     }
 
     /**
-     * @brief Afegeix a nodesTancar els nodes que cal tancar perquè la xarxa sigui coherent.
+     * @brief Retorna les canonades del tall mínim entre els orígens i els terminals de la component connexa de nodeOrigen.
      * @param x Xarxa de distribució d'aigua.
-     * @param node Node actual.
-     * @param incoherents Map de nodes incoherents.
-     * @param nodesTancar Conjunt de nodes a tancar.
-     * Pre: node és un node de la xarxa x, incoherents conté els nodes incoherents de la xarxa x, nodesTancar és un conjunt buit.
-     * Post: Afegeix a nodesTancar els nodes que cal tancar perquè la xarxa sigui coherent.
+     * @param nodeOrigen Node origen de la xarxa.
+     * @return Canonades saturades que limiten el flux màxim.
+     * Pre: nodeOrigen pertany a la xarxa x.
+     * Post: Retorna les canonades d'un tall mínim de la component connexa de nodeOrigen; la xarxa no es modifica.
      */
-    private static void tancarNode(Xarxa x, Node_X node, Map<Node_X, Boolean> incoherents, Set<Node_X> nodesTancar){
-        if(node == null)
-            return;
-
-        boolean[] coherencia = new boolean[2];
-
-        if(obtenirInferiors(x, node).isEmpty()) {
-            tancarNode(x, superior(x, node), incoherents, nodesTancar);
-        }
-        else {
-            teCoherentsiIncoherents(x, node, incoherents, coherencia);
-            if(coherencia[0] && coherencia[1])
-                nodesTancar.add(node);
-            else {
-                tancarNode(x, superior(x, node), incoherents, nodesTancar);
-            }
-        }
+    public static List<Canonada> tallMinim(Xarxa x, PuntOrigen nodeOrigen) {
+        return sessioFluxMaxim(x, nodeOrigen).tallMinim();
     }
 
     /**
-     * @brief Diu si el node té tan inferiors coherents com incoherents.
+     * @brief Calcula l'arbre de dominadors de la component connexa de node per saber quines aixetes aïllen quins terminals.
      * @param x Xarxa de distribució d'aigua.
-     * @param node Node actual.
-     * @param incoherents Map de nodes incoherents.
-     * @param coherencia Array de dos booleans per guardar si el node té inferiors coherents i incoherents.
-     * Pre: ---
-     * Post: true si el node té tan inferiors coherents com incoherents, false en cas contrari.
+     * @param node Node de la component connexa.
+     * @return Arbre de dominadors des dels orígens oberts de la component.
+     * Pre: node pertany a la xarxa x.
+     * Post: Retorna l'arbre de dominadors de la component connexa de node; la xarxa no es modifica.
      */
-    private static void teCoherentsiIncoherents(Xarxa x, Node_X node, Map<Node_X, Boolean> incoherents, boolean[] coherencia) {
-        List<Node_X> inferiors = obtenirInferiors(x, node);
-        if(inferiors.isEmpty())
-            return;
-        for(Node_X inferior : inferiors) {
-            if(incoherents.containsKey(inferior)) {
-                if (incoherents.get(inferior)) {
-                    coherencia[1] = true;
-                }
-                else {
-                    coherencia[0] = true;
-                }
-                if(coherencia[0] && coherencia[1]) {
-                    break;
-                }
-            }
-            else {
-                teCoherentsiIncoherents(x, inferior, incoherents, coherencia);
-            }
-        }
+    public static DominadorsXarxa dominadors(Xarxa x, Node_X node) {
+        return new DominadorsXarxa(x, node);
     }
 
     /**
-     * @brief Omple la llista terminals amb tots els terminals de la xarxa x.
+     * @brief Retorna les canonades i connexions de la component connexa de node que, si fallen, deixen terminals sense cap origen.
      * @param x Xarxa de distribució d'aigua.
-     * @param terminals Llista de terminals.
-     * Pre: ---
-     * Post: Omple la llista terminals amb tots els terminals de la xarxa x.
+     * @param node Node de la component connexa.
+     * @return Canonades i connexions crítiques amb el nombre de terminals que aïllen.
+     * Pre: node pertany a la xarxa x.
+     * Post: Retorna els ponts i els punts d'articulació de la component connexa de node, sense tenir en compte el sentit de les canonades; la xarxa no es modifica.
      */
-    private static void obtenirTerminals(Xarxa x, List<PuntTerminal> terminals) {
-        for (Node_X node : x.nodes()) {
-            if (node instanceof PuntTerminal) {
-                terminals.add((PuntTerminal) node);
-            }
-        }
+    public static ElementsCritics critics(Xarxa x, Node_X node) {
+        return new ElementsCritics(x, node);
     }
 
     /**
-     * @brief Retorna una llista amb els nodes d'origen de la component connexa d'origen.
-     * @param x Xarxa de distribució d'aigua.
-     * @param nodeOrigen Node origen.
-     * @return Llista de nodes d'origen.
-     * Pre: nodeOrigen pertany a la xarxa x.
-     * Post: Retorna una llista amb els nodes d'origen de la component connexa d'origen.
+     * @brief Retorna l'arrel de l'arbre que conté v.
+     * @param index Índex d'adjacència de la xarxa.
+     * @param v Identificador dens d'un node.
+     * @return Identificador dens del node sense entrades del qual penja v.
+     * Pre: la component de v té forma d'arbre.
+     * Post: Retorna l'arrel de l'arbre que conté v.
      */
-    private static List<PuntOrigen> obtenirOrigens(Xarxa x, Node_X nodeOrigen) {
-        List<PuntOrigen> origens = new ArrayList<>();
-        Set<Node_X> visitats = new HashSet<>();
-        Queue<Node_X> cua = new LinkedList<>();
-        cua.add(nodeOrigen);
-        while (!cua.isEmpty()) {
-            Node_X actual = cua.poll();
-            visitats.add(actual);
-            if (actual instanceof PuntOrigen) {
-                origens.add((PuntOrigen) actual);
-            }
-            for (Node_X vei : obtenirVeins(x, actual)) {
-                if (!visitats.contains(vei)) {
-                    cua.add(vei);
-                }
-            }
+    private static int arrel(IndexXarxa index, int v) {
+        for (int passos = 0; index.grauEntrada(v) > 0 && passos < index.nNodes(); passos++) {
+            v = index.origen(index.entrada(index.iniciEntrades(v)));
         }
-        return origens;
+        return v;
     }
 
     /**
-     * @brief Omple el mapa demandesNodes amb les demandes dels terminals.
-     * @param terminals Llista de terminals.
-     * @param demandesNodes Map de demandes de nodes.
-     * Pre: ---
-     * Post: Omple el mapa demandesNodes amb les demandes dels terminals.
-     */
-    private static void guardarDemandes(List<PuntTerminal> terminals, Map<Node_X, Float> demandesNodes) {
-        for (PuntTerminal terminal : terminals) {
-            demandesNodes.put(terminal, terminal.demanda_actual());
-        }
-    }
-
-    /**
-     * @brief Omple el mapa cabalsNodes amb els cabals dels nodes d'origen.
-     * @param origens Llista de nodes d'origen.
-     * @param cabalsNodes Map de cabals de nodes.
-     * Pre: ---
-     * Post: Omple el mapa cabalsNodes amb els cabals dels nodes d'origen.
-     */
-    private static void guardarCabals(List<PuntOrigen> origens, Map<Node_X, Float> cabalsNodes) {
-        for (PuntOrigen origen : origens) {
-            cabalsNodes.put(origen, origen.cabal());
-        }
-    }
-
-    /**
-     * @brief Retorna una llista amb els terminals de la component connexa d'origen.
-     * @param x Xarxa de distribució d'aigua.
-     * @param nodeOrigen Node origen.
-     * @return Llista de terminals.
-     * Pre: nodeOrigen pertany a la xarxa x.
-     * Post: Retorna una llista amb els terminals de la component connexa d'origen.
-     */
-    private static List<PuntTerminal> terminals(Xarxa x, PuntOrigen nodeOrigen) {
-        List<PuntTerminal> terminals = new ArrayList<>();
-        Set<Node_X> visitats = new HashSet<>();
-        Queue<Node_X> cua = new LinkedList<>();
-        cua.add(nodeOrigen);
-        while (!cua.isEmpty()) {
-            Node_X actual = cua.poll();
-            visitats.add(actual);
-            if (actual instanceof PuntTerminal) {
-                if(!terminals.contains((PuntTerminal) actual))
-                    terminals.add((PuntTerminal) actual);
-            }
-            for (Node_X vei : obtenirVeins(x, actual)) {
-                if (!visitats.contains(vei)) {
-                    cua.add(vei);
-                }
-            }
-        }
-        return terminals;
-    }
-
-    /**
-     * @brief Retorna una llista amb els nodes d'origen de la component connexa d'origen.
+     * @brief Recorre en profunditat l'arbre que penja d'arrel i en calcula el preordre, el pare i si té alguna aixeta tancada per sobre.
      * @param x Xarxa de distribució d'aigua.
-     * @param nodeOrigen Node origen.
-     * @return Llista de nodes d'origen.
-     * Pre: nodeOrigen pertany a la xarxa x.
-     * Post: Retorna una llista amb els nodes d'origen de la component connexa d'origen.
-     */
-    private static List<PuntOrigen> origens(Xarxa x, PuntOrigen nodeOrigen) {
-        List<PuntOrigen> origens = new ArrayList<>();
-        Set<Node_X> visitats = new HashSet<>();
-        Queue<Node_X> cua = new LinkedList<>();
-        cua.add(nodeOrigen);
-        while (!cua.isEmpty()) {
-            Node_X actual = cua.poll();
-            visitats.add(actual);
-            if (actual instanceof PuntOrigen) {
-                if(!origens.contains((PuntOrigen) actual))
-                    origens.add((PuntOrigen) actual);
+     * @param arrel Identificador dens de l'arrel.
+     * @param preordre Vector on es guarden els nodes en preordre.
+     * @param pare Vector on es guarda el pare de cada node (-1 per a l'arrel).
+     * @param bloquejat Vector on es guarda si el node o algun dels seus superiors té l'aixeta tancada.
+     * @return Nombre de nodes de l'arbre.
+     * Pre: l'arbre que penja d'arrel no té cicles i els vectors tenen mida com a mínim el nombre de nodes de la xarxa.
+     * Post: preordre conté els nodes de l'arbre en preordre, i pare i bloquejat en tenen els valors corresponents.
+     */
+    private static int recorrerArbre(Xarxa x, int arrel, int[] preordre, int[] pare, boolean[] bloquejat) {
+        IndexXarxa index = x.index();
+        int[] mida = {0};
+        x.recorregut().profunditat(arrel, Recorregut.SORTIDES, new Recorregut.Visitant() {
+            @Override
+            public void entrar(int v, int e) {
+                int p = e == -1 ? -1 : index.origen(e);
+                pare[v] = p;
+                bloquejat[v] = (p != -1 && bloquejat[p]) || !index.node(v).aixetaOberta();
+                preordre[mida[0]++] = v;
             }
-            for (Node_X vei : obtenirVeins(x, actual)) {
-                if (!visitats.contains(vei)) {
-                    cua.add(vei);
-                }
-            }
-        }
-        return origens;
+        });
+        return mida[0];
     }
 }
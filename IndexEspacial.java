@@ -0,0 +1,362 @@
+//Pol Martorell Herrera
+/**
+ * @file IndexEspacial.java
+ * @brief Índex espacial dels nodes d'una xarxa de distribució d'aigua per a consultes de proximitat
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * @class IndexEspacial
+ * @brief Graella uniforme sobre les posicions dels nodes a l'esfera unitat, indexada pels identificadors densos.
+ *
+ * Cada node es representa pel vector unitari (x, y, z) de les seves coordenades. La distància euclidiana
+ * entre dos vectors (la corda) creix amb la distància sobre la superfície, de manera que els k nodes més
+ * propers i els nodes dins d'un radi es poden buscar amb la corda. Per a un rectangle de latituds i
+ * longituds es visiten les cel·les de la caixa que el conté i es comprova cada node amb les seves
+ * coordenades. Les cel·les són cubs de costat mida i només es guarden les que tenen algun node. Quan el
+ * nombre de nodes es duplica, la mida es torna a calcular a partir de l'extensió dels nodes perquè cada
+ * cel·la en tingui pocs, i la graella es reconstrueix; el cost amortitzat d'afegir un node és O(1).
+ */
+class IndexEspacial {
+
+    private static final double RADI_TERRA = 6371.0; ///< Radi de la Terra en km
+    private static final int BITS = 21;              ///< Bits de cada coordenada de cel·la a la clau
+    private static final double MIDA_MINIMA = 2.0 / (1 << (BITS - 1)); ///< Mida mínima perquè les coordenades de cel·la càpiguen a la clau
+
+    private final IndexXarxa index;                  ///< Índex d'adjacència de la xarxa
+    private double[] x = new double[16];             ///< Component x del vector unitari de cada node
+    private double[] y = new double[16];             ///< Component y del vector unitari de cada node
+    private double[] z = new double[16];             ///< Component z del vector unitari de cada node
+    private int n = 0;                               ///< Nombre de nodes
+    private double mida = 0.01;                      ///< Costat de les cel·les (en unitats de corda)
+    private int limit = 64;                          ///< Nombre de nodes a partir del qual es recalcula la mida
+    private final Map<Long, Cella> celles = new HashMap<>(); ///< Cel·les no buides segons la seva clau
+
+    /**
+     * @brief Constructor
+     * @pre ---
+     * @post Crea un índex espacial sense nodes
+     * @param index Índex d'adjacència de la xarxa
+     */
+    IndexEspacial(IndexXarxa index) {
+        this.index = index;
+    }
+
+    /**
+     * @brief Afegeix un node a l'índex
+     * @pre El node té el següent identificador dens lliure
+     * @post El node queda a la cel·la de les seves coordenades
+     * @param node Node a afegir
+     */
+    void afegirNode(Node_X node) {
+        if (n == x.length) {
+            x = Arrays.copyOf(x, n * 2);
+            y = Arrays.copyOf(y, n * 2);
+            z = Arrays.copyOf(z, n * 2);
+        }
+        double[] p = vector(node.coordenades());
+        x[n] = p[0];
+        y[n] = p[1];
+        z[n] = p[2];
+        n++;
+        if (n >= limit)
+            reconstruir();
+        else
+            inserir(n - 1);
+    }
+
+    /**
+     * @brief Retorna els k nodes més propers a les coordenades c dins d'un radi
+     * @pre ---
+     * @post Retorna els com a molt k nodes més propers a c que són a distància com a molt radi, ordenats de més a
+     * menys propers; si k <= 0 no hi ha límit de nodes
+     * @param c Coordenades de referència
+     * @param k Nombre màxim de nodes
+     * @param radi Distància màxima en km (infinit per no limitar-la)
+     * @return List<Node_X> Nodes més propers
+     */
+    List<Node_X> propers(Coordenades c, int k, double radi) {
+        if (n == 0)
+            return new ArrayList<>();
+        double[] q = vector(c);
+        double cordaMaxima = corda(radi);
+        MonticlePropers monticle = new MonticlePropers(k > 0 ? Math.min(k, n) : n);
+        long ci = coordenadaCella(q[0]), cj = coordenadaCella(q[1]), ck = coordenadaCella(q[2]);
+        long maxAnell = (long) Math.ceil(2 / mida) + 1;
+        for (long r = 0; r <= maxAnell; r++) {
+            if (r > 0 && (r - 1) * mida > cordaMaxima)
+                break;
+            if (r > 0 && monticle.ple() && (r - 1) * mida > Math.sqrt(monticle.maxim()))
+                break;
+            long cellesAnell = r == 0 ? 1 : (2 * r + 1) * (2 * r + 1) * (2 * r + 1) - (2 * r - 1) * (2 * r - 1) * (2 * r - 1);
+            if (cellesAnell > celles.size()) {
+                // L'anell té més cel·les que la graella: es recorren directament les cel·les que queden
+                for (Map.Entry<Long, Cella> e : celles.entrySet()) {
+                    long clau = e.getKey();
+                    if (chebyshev(clau, ci, cj, ck) >= r)
+                        visitar(e.getValue(), q, cordaMaxima, monticle);
+                }
+                break;
+            }
+            for (long di = -r; di <= r; di++) {
+                for (long dj = -r; dj <= r; dj++) {
+                    boolean vora = Math.abs(di) == r || Math.abs(dj) == r;
+                    for (long dk = -r; dk <= r; dk += vora || r == 0 ? 1 : 2 * r) {
+                        Cella cella = celles.get(clau(ci + di, cj + dj, ck + dk));
+                        if (cella != null)
+                            visitar(cella, q, cordaMaxima, monticle);
+                    }
+                }
+            }
+        }
+        return monticle.ordenats();
+    }
+
+    /**
+     * @brief Retorna els nodes a distància com a molt radi de les coordenades c
+     * @pre radi >= 0
+     * @post Retorna els identificadors densos dels nodes dins del cercle, en ordre creixent; només es visiten les
+     * cel·les que toquen el cub que conté el cercle
+     * @param c Centre del cercle
+     * @param radi Radi en km
+     * @return int[] Identificadors densos dels nodes
+     */
+    int[] dinsRadi(Coordenades c, double radi) {
+        double[] q = vector(c);
+        double cordaMaxima = Math.min(2, corda(radi));
+        double limitQuadrat = cordaMaxima * cordaMaxima;
+        double[] minim = {q[0] - cordaMaxima, q[1] - cordaMaxima, q[2] - cordaMaxima};
+        double[] maxim = {q[0] + cordaMaxima, q[1] + cordaMaxima, q[2] + cordaMaxima};
+        List<Integer> resultat = new ArrayList<>();
+        recorrerCaixa(minim, maxim, cella -> {
+            for (int i = 0; i < cella.mida; i++) {
+                int v = cella.nodes[i];
+                double dx = q[0] - x[v], dy = q[1] - y[v], dz = q[2] - z[v];
+                if (dx * dx + dy * dy + dz * dz <= limitQuadrat)
+                    resultat.add(v);
+            }
+        });
+        return ordenar(resultat);
+    }
+
+    /**
+     * @brief Retorna els nodes dins del rectangle de latituds [sud, nord] i longituds [oest, est]
+     * @pre -90 <= sud <= nord <= 90; si oest > est el rectangle travessa l'antimeridià
+     * @post Retorna els identificadors densos dels nodes dins del rectangle, en ordre creixent; només es visiten
+     * les cel·les que toquen la caixa que conté el rectangle
+     * @param sud Latitud mínima en graus
+     * @param nord Latitud màxima en graus
+     * @param oest Longitud de l'extrem oest en graus
+     * @param est Longitud de l'extrem est en graus
+     * @return int[] Identificadors densos dels nodes
+     */
+    int[] dinsRectangle(double sud, double nord, double oest, double est) {
+        double fi1 = Math.toRadians(sud), fi2 = Math.toRadians(nord);
+        double lambda1 = Math.toRadians(oest), lambda2 = Math.toRadians(est);
+        if (lambda2 < lambda1)
+            lambda2 += 2 * Math.PI;
+        // Cada component del vector és un producte de funcions de la latitud i de la longitud
+        double[] cosLatitud = rangCosinus(fi1, fi2);
+        double[] sinLatitud = {Math.sin(fi1), Math.sin(fi2)};
+        double[] cosLongitud = rangCosinus(lambda1, lambda2);
+        double[] sinLongitud = rangCosinus(lambda1 - Math.PI / 2, lambda2 - Math.PI / 2);
+        double[] rangX = rangProducte(cosLatitud, cosLongitud);
+        double[] rangY = rangProducte(cosLatitud, sinLongitud);
+        double[] minim = {rangX[0], rangY[0], sinLatitud[0]};
+        double[] maxim = {rangX[1], rangY[1], sinLatitud[1]};
+        boolean travessa = est < oest;
+        List<Integer> resultat = new ArrayList<>();
+        recorrerCaixa(minim, maxim, cella -> {
+            for (int i = 0; i < cella.mida; i++) {
+                int v = cella.nodes[i];
+                Coordenades c = index.node(v).coordenades();
+                boolean dinsLongitud = travessa ? c.longitud() >= oest || c.longitud() <= est : c.longitud() >= oest && c.longitud() <= est;
+                if (c.latitud() >= sud && c.latitud() <= nord && dinsLongitud)
+                    resultat.add(v);
+            }
+        });
+        return ordenar(resultat);
+    }
+
+    /**
+     * @brief Aplica visitant a cada cel·la no buida que toca la caixa [minim, maxim]
+     */
+    private void recorrerCaixa(double[] minim, double[] maxim, Consumer<Cella> visitant) {
+        long[] inici = new long[3];
+        long[] fi = new long[3];
+        long cellesCaixa = 1;
+        for (int d = 0; d < 3; d++) {
+            inici[d] = coordenadaCella(Math.max(-1, minim[d] - 1e-9));
+            fi[d] = coordenadaCella(Math.min(1, maxim[d] + 1e-9));
+            cellesCaixa *= fi[d] - inici[d] + 1;
+            if (cellesCaixa > celles.size())
+                break;
+        }
+        if (cellesCaixa > celles.size()) {
+            // La caixa té més cel·les que la graella: es recorren directament les cel·les no buides
+            celles.values().forEach(visitant);
+            return;
+        }
+        for (long i = inici[0]; i <= fi[0]; i++) {
+            for (long j = inici[1]; j <= fi[1]; j++) {
+                for (long k = inici[2]; k <= fi[2]; k++) {
+                    Cella cella = celles.get(clau(i, j, k));
+                    if (cella != null)
+                        visitant.accept(cella);
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief Afegeix al monticle els nodes de la cel·la que són dins del radi
+     */
+    private void visitar(Cella cella, double[] q, double cordaMaxima, MonticlePropers monticle) {
+        double limitQuadrat = cordaMaxima * cordaMaxima;
+        for (int i = 0; i < cella.mida; i++) {
+            int v = cella.nodes[i];
+            double dx = q[0] - x[v], dy = q[1] - y[v], dz = q[2] - z[v];
+            double d = dx * dx + dy * dy + dz * dz;
+            if (d <= limitQuadrat)
+                monticle.oferir(d, index.node(v));
+        }
+    }
+
+    /**
+     * @brief Recalcula la mida de les cel·les segons l'extensió dels nodes i hi torna a repartir tots els nodes
+     */
+    private void reconstruir() {
+        double[] minim = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        double[] maxim = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int v = 0; v < n; v++) {
+            double[] p = {x[v], y[v], z[v]};
+            for (int d = 0; d < 3; d++) {
+                minim[d] = Math.min(minim[d], p[d]);
+                maxim[d] = Math.max(maxim[d], p[d]);
+            }
+        }
+        double[] extensio = {maxim[0] - minim[0], maxim[1] - minim[1], maxim[2] - minim[2]};
+        Arrays.sort(extensio);
+        // Els nodes són sobre una superfície: s'ajusta la mida a l'àrea de les dues extensions més grans
+        double area = Math.max(extensio[2] * extensio[1], extensio[2] * extensio[2] / n);
+        mida = Math.min(2, Math.max(MIDA_MINIMA, 2 * Math.sqrt(area / n)));
+        limit = n * 2;
+        celles.clear();
+        for (int v = 0; v < n; v++)
+            inserir(v);
+    }
+
+    /**
+     * @brief Afegeix el node v a la seva cel·la
+     */
+    private void inserir(int v) {
+        long clau = clau(coordenadaCella(x[v]), coordenadaCella(y[v]), coordenadaCella(z[v]));
+        Cella cella = celles.get(clau);
+        if (cella == null) {
+            cella = new Cella();
+            celles.put(clau, cella);
+        }
+        cella.afegir(v);
+    }
+
+    /**
+     * @brief Retorna la coordenada de cel·la d'una component de vector
+     */
+    private long coordenadaCella(double component) {
+        return (long) Math.floor(component / mida);
+    }
+
+    /**
+     * @brief Empaqueta les coordenades d'una cel·la en una clau
+     */
+    private static long clau(long i, long j, long k) {
+        long desplacament = 1L << (BITS - 1);
+        long mascara = (1L << BITS) - 1;
+        return (((i + desplacament) & mascara) << (2 * BITS)) | (((j + desplacament) & mascara) << BITS) | ((k + desplacament) & mascara);
+    }
+
+    /**
+     * @brief Retorna la distància de Chebyshev entre la cel·la de clau i la cel·la (ci, cj, ck)
+     */
+    private static long chebyshev(long clau, long ci, long cj, long ck) {
+        long desplacament = 1L << (BITS - 1);
+        long mascara = (1L << BITS) - 1;
+        long i = ((clau >>> (2 * BITS)) & mascara) - desplacament;
+        long j = ((clau >>> BITS) & mascara) - desplacament;
+        long k = (clau & mascara) - desplacament;
+        return Math.max(Math.abs(i - ci), Math.max(Math.abs(j - cj), Math.abs(k - ck)));
+    }
+
+    /**
+     * @brief Retorna el vector unitari de les coordenades c
+     */
+    private static double[] vector(Coordenades c) {
+        return new double[]{c.cosLatitud() * Math.cos(c.longitudRad()), c.cosLatitud() * Math.sin(c.longitudRad()), Math.sin(c.latitudRad())};
+    }
+
+    /**
+     * @brief Retorna el valor mínim i màxim del cosinus a l'interval [a, b]
+     */
+    private static double[] rangCosinus(double a, double b) {
+        double minim = Math.min(Math.cos(a), Math.cos(b));
+        double maxim = Math.max(Math.cos(a), Math.cos(b));
+        // Màxims a 2·k·pi i mínims a (2·k+1)·pi
+        if (Math.floor(b / (2 * Math.PI)) * 2 * Math.PI >= a)
+            maxim = 1;
+        if (Math.floor((b - Math.PI) / (2 * Math.PI)) * 2 * Math.PI + Math.PI >= a)
+            minim = -1;
+        return new double[]{minim, maxim};
+    }
+
+    /**
+     * @brief Retorna el valor mínim i màxim del producte d'un valor de l'interval a per un de l'interval b
+     */
+    private static double[] rangProducte(double[] a, double[] b) {
+        double p1 = a[0] * b[0], p2 = a[0] * b[1], p3 = a[1] * b[0], p4 = a[1] * b[1];
+        return new double[]{Math.min(Math.min(p1, p2), Math.min(p3, p4)), Math.max(Math.max(p1, p2), Math.max(p3, p4))};
+    }
+
+    /**
+     * @brief Retorna els identificadors de la llista en un vector ordenat
+     */
+    private static int[] ordenar(List<Integer> llista) {
+        int[] resultat = new int[llista.size()];
+        for (int i = 0; i < resultat.length; i++)
+            resultat[i] = llista.get(i);
+        Arrays.sort(resultat);
+        return resultat;
+    }
+
+    /**
+     * @brief Retorna la corda corresponent a una distància en km sobre la superfície
+     */
+    private static double corda(double distancia) {
+        if (distancia >= Math.PI * RADI_TERRA)
+            return Double.POSITIVE_INFINITY;
+        return 2 * Math.sin(distancia / (2 * RADI_TERRA));
+    }
+
+    /**
+     * @class Cella
+     * @brief Nodes d'una cel·la de la graella.
+     */
+    private static class Cella {
+        private int[] nodes = new int[4]; ///< Identificadors densos dels nodes
+        private int mida = 0;             ///< Nombre de nodes
+
+        /**
+         * @brief Afegeix el node v a la cel·la
+         */
+        void afegir(int v) {
+            if (mida == nodes.length)
+                nodes = Arrays.copyOf(nodes, mida * 2);
+            nodes[mida++] = v;
+        }
+    }
+}
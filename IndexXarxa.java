@@ -0,0 +1,275 @@
+//Pol Martorell Herrera
+/**
+ * @file IndexXarxa.java
+ * @brief Índex compacte d'adjacència (CSR) d'una xarxa de distribució d'aigua
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @class IndexXarxa
+ * @brief Índex d'adjacència amb identificadors enters densos per als nodes i les canonades d'una Xarxa.
+ *
+ * Les sortides i entrades de cada node es guarden en format CSR (un únic vector d'enters amb
+ * una franja contigua per node). Cada franja té capacitat de reserva: quan s'omple es reubica
+ * al final del vector amb el doble de capacitat, i el vector es compacta quan els forats
+ * superen la meitat de l'espai ocupat. Així afegir una canonada té cost amortitzat O(1).
+ */
+class IndexXarxa {
+
+    private final Map<String, Integer> idsNodes = new HashMap<>();       ///< Identificador dens de cada node segons el seu id
+    private final Map<Canonada, Integer> idsCanonades = new HashMap<>(); ///< Identificador dens de cada canonada
+    private Node_X[] nodes = new Node_X[16];          ///< Node corresponent a cada identificador dens
+    private int nNodes = 0;                           ///< Nombre de nodes indexats
+    private Canonada[] canonades = new Canonada[16];  ///< Canonada corresponent a cada identificador dens
+    private int[] origens = new int[16];              ///< Node d'inici de cada canonada
+    private int[] destins = new int[16];              ///< Node de destí de cada canonada
+    private int nCanonades = 0;                       ///< Nombre de canonades indexades
+    private final Adjacencia sortides = new Adjacencia(); ///< Canonades que surten de cada node
+    private final Adjacencia entrades = new Adjacencia(); ///< Canonades que entren a cada node
+
+    /**
+     * @brief Afegeix un node a l'índex
+     * @pre No hi ha cap node indexat amb el mateix id
+     * @post El node queda indexat amb el següent identificador dens lliure
+     * @param n Node a afegir
+     * @return int Identificador dens del node
+     */
+    int afegirNode(Node_X n) {
+        if (nNodes == nodes.length)
+            nodes = Arrays.copyOf(nodes, nNodes * 2);
+        nodes[nNodes] = n;
+        idsNodes.put(n.id(), nNodes);
+        sortides.afegirNode();
+        entrades.afegirNode();
+        return nNodes++;
+    }
+
+    /**
+     * @brief Substitueix el node associat a un identificador dens, conservant-ne les canonades
+     * @pre 0 <= v < nNodes() i n té el mateix id que el node indexat a v
+     * @post El node amb identificador dens v és n
+     * @param v Identificador dens del node
+     * @param n Nou node
+     */
+    void substituirNode(int v, Node_X n) {
+        nodes[v] = n;
+    }
+
+    /**
+     * @brief Afegeix una canonada a l'índex
+     * @pre o i d són identificadors densos de nodes indexats
+     * @post La canonada queda indexada com a sortida de o i entrada de d
+     * @param o Identificador dens del node d'inici
+     * @param d Identificador dens del node de destí
+     * @param c Canonada a afegir
+     * @return int Identificador dens de la canonada
+     */
+    int afegirCanonada(int o, int d, Canonada c) {
+        if (nCanonades == canonades.length) {
+            canonades = Arrays.copyOf(canonades, nCanonades * 2);
+            origens = Arrays.copyOf(origens, nCanonades * 2);
+            destins = Arrays.copyOf(destins, nCanonades * 2);
+        }
+        canonades[nCanonades] = c;
+        origens[nCanonades] = o;
+        destins[nCanonades] = d;
+        idsCanonades.put(c, nCanonades);
+        sortides.afegir(o, nCanonades);
+        entrades.afegir(d, nCanonades);
+        return nCanonades++;
+    }
+
+    /**
+     * @brief Retorna l'identificador dens del node amb identificador id
+     * @pre ---
+     * @post Retorna l'identificador dens del node, o -1 si no està indexat
+     * @param id Identificador del node
+     * @return int Identificador dens del node
+     */
+    int id(String id) {
+        Integer v = idsNodes.get(id);
+        return v == null ? -1 : v;
+    }
+
+    /**
+     * @brief Retorna l'identificador dens de la canonada c
+     * @pre ---
+     * @post Retorna l'identificador dens de la canonada, o -1 si no està indexada
+     * @param c Canonada
+     * @return int Identificador dens de la canonada
+     */
+    int id(Canonada c) {
+        Integer e = idsCanonades.get(c);
+        return e == null ? -1 : e;
+    }
+
+    /** @brief Retorna el nombre de nodes indexats */
+    int nNodes() {
+        return nNodes;
+    }
+
+    /** @brief Retorna el nombre de canonades indexades */
+    int nCanonades() {
+        return nCanonades;
+    }
+
+    /** @brief Retorna el node amb identificador dens v */
+    Node_X node(int v) {
+        return nodes[v];
+    }
+
+    /** @brief Retorna la canonada amb identificador dens e */
+    Canonada canonada(int e) {
+        return canonades[e];
+    }
+
+    /** @brief Retorna l'identificador dens del node d'inici de la canonada e */
+    int origen(int e) {
+        return origens[e];
+    }
+
+    /** @brief Retorna l'identificador dens del node de destí de la canonada e */
+    int desti(int e) {
+        return destins[e];
+    }
+
+    /** @brief Retorna la primera posició de la franja de sortides del node v */
+    int iniciSortides(int v) {
+        return sortides.inici[v];
+    }
+
+    /** @brief Retorna la posició següent a l'última de la franja de sortides del node v */
+    int fiSortides(int v) {
+        return sortides.inici[v] + sortides.grau[v];
+    }
+
+    /** @brief Retorna la canonada que ocupa la posició k del vector de sortides */
+    int sortida(int k) {
+        return sortides.arestes[k];
+    }
+
+    /** @brief Retorna el nombre de canonades que surten del node v */
+    int grauSortida(int v) {
+        return sortides.grau[v];
+    }
+
+    /** @brief Retorna la primera posició de la franja d'entrades del node v */
+    int iniciEntrades(int v) {
+        return entrades.inici[v];
+    }
+
+    /** @brief Retorna la posició següent a l'última de la franja d'entrades del node v */
+    int fiEntrades(int v) {
+        return entrades.inici[v] + entrades.grau[v];
+    }
+
+    /** @brief Retorna la canonada que ocupa la posició k del vector d'entrades */
+    int entrada(int k) {
+        return entrades.arestes[k];
+    }
+
+    /** @brief Retorna el nombre de canonades que entren al node v */
+    int grauEntrada(int v) {
+        return entrades.grau[v];
+    }
+
+    /** @brief Retorna el vector actual de sortides (vàlid fins a la propera modificació de l'índex) */
+    int[] vectorSortides() {
+        return sortides.arestes;
+    }
+
+    /** @brief Retorna el vector actual d'entrades (vàlid fins a la propera modificació de l'índex) */
+    int[] vectorEntrades() {
+        return entrades.arestes;
+    }
+
+    /**
+     * @class Adjacencia
+     * @brief Llistes d'adjacència en format CSR amb franges de capacitat variable.
+     */
+    private static class Adjacencia {
+        int[] inici = new int[16];    ///< Inici de la franja de cada node
+        int[] grau = new int[16];     ///< Nombre de canonades de cada node
+        int[] reserva = new int[16];  ///< Capacitat de la franja de cada node
+        int[] arestes = new int[64];  ///< Vector compartit de canonades
+        int ocupat = 0;               ///< Posicions ocupades (incloent-hi forats) del vector
+        int forats = 0;               ///< Posicions de franges abandonades
+        int n = 0;                    ///< Nombre de nodes
+
+        /**
+         * @brief Afegeix un node sense canonades
+         * @pre ---
+         * @post El node n té una franja buida
+         */
+        void afegirNode() {
+            if (n == inici.length) {
+                inici = Arrays.copyOf(inici, n * 2);
+                grau = Arrays.copyOf(grau, n * 2);
+                reserva = Arrays.copyOf(reserva, n * 2);
+            }
+            inici[n] = ocupat;
+            grau[n] = 0;
+            reserva[n] = 0;
+            n++;
+        }
+
+        /**
+         * @brief Afegeix la canonada e a la franja del node v
+         * @pre 0 <= v < n
+         * @post e és l'última canonada de la franja de v
+         */
+        void afegir(int v, int e) {
+            if (grau[v] == reserva[v]) {
+                int novaReserva = Math.max(2, reserva[v] * 2);
+                if (inici[v] + reserva[v] == ocupat) {
+                    // La franja ja és al final del vector: només cal estendre-la
+                    assegurarEspai(inici[v] + novaReserva);
+                } else {
+                    assegurarEspai(ocupat + novaReserva);
+                    System.arraycopy(arestes, inici[v], arestes, ocupat, grau[v]);
+                    forats += reserva[v];
+                    inici[v] = ocupat;
+                }
+                ocupat = inici[v] + novaReserva;
+                reserva[v] = novaReserva;
+            }
+            arestes[inici[v] + grau[v]] = e;
+            grau[v]++;
+            if (forats > ocupat / 2)
+                compactar();
+        }
+
+        /**
+         * @brief Garanteix que el vector de canonades té com a mínim mida posicions
+         */
+        private void assegurarEspai(int mida) {
+            if (mida > arestes.length)
+                arestes = Arrays.copyOf(arestes, Math.max(mida, arestes.length * 2));
+        }
+
+        /**
+         * @brief Elimina els forats del vector reubicant les franges de manera contigua
+         * @pre ---
+         * @post No hi ha forats i cada franja conserva una reserva de la meitat del seu grau
+         */
+        private void compactar() {
+            int mida = 0;
+            for (int v = 0; v < n; v++)
+                mida += grau[v] + grau[v] / 2;
+            int[] nou = new int[Math.max(64, mida)];
+            int pos = 0;
+            for (int v = 0; v < n; v++) {
+                System.arraycopy(arestes, inici[v], nou, pos, grau[v]);
+                inici[v] = pos;
+                reserva[v] = grau[v] + grau[v] / 2;
+                pos += reserva[v];
+            }
+            arestes = nou;
+            ocupat = pos;
+            forats = 0;
+        }
+    }
+}
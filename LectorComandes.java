@@ -0,0 +1,454 @@
+//Pol Martorell Herrera
+/**
+ * @file LectorComandes.java
+ * @brief Lector en flux de les línies del fitxer d'operacions d'una simulació
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * @class LectorComandes
+ * @brief Tokenitzador escrit a mà sobre un buffer gran de caràcters, amb els separadors de línia com a delimitadors.
+ *
+ * Es comporta com un Scanner amb System.lineSeparator() com a delimitador, que és com el feia servir el
+ * simulador: seguent() salta com a molt un delimitador i retorna el text fins al següent (que pot ser buit),
+ * i seguentLinia() retorna la resta de la línia actual. Els tokens es copien directament del buffer, sense
+ * expressions regulars ni còpies intermèdies, i el fitxer es llegeix per blocs de 64K caràcters.
+ *
+ * Les línies amb diversos camps separats per espais es llegeixen paraula a paraula amb seguentParaula() i
+ * hiHaParaula(), i els nombres i els noms de les operacions es reconeixen directament sobre el buffer.
+ */
+class LectorComandes {
+
+    private final Reader lector;        ///< Fitxer d'entrada
+    private final char[] delimitador = System.lineSeparator().toCharArray(); ///< Delimitador dels tokens
+    private char[] buffer = new char[1 << 16]; ///< Caràcters llegits i encara no consumits a [posicio, limit)
+    private int posicio = 0;            ///< Primer caràcter no consumit
+    private int limit = 0;              ///< Final dels caràcters llegits
+    private boolean fi = false;         ///< Diu si s'ha arribat al final del fitxer
+    private final StringBuilder token = new StringBuilder(); ///< Token que travessa el final del buffer
+    private CharBuffer vista = CharBuffer.wrap(buffer); ///< Vista del buffer com a CharSequence
+
+    private static final float[] POTENCIES_DEU = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f}; ///< Potències de deu exactes en float
+    private static final double[] POTENCIES_DEU_DOUBLE = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22}; ///< Potències de deu exactes en double
+
+    /**
+     * @brief Constructor
+     * @pre ---
+     * @post Crea un lector al principi del fitxer, amb la codificació per defecte
+     * @param fitxer Fitxer a llegir
+     * @throws FileNotFoundException Si el fitxer no existeix o no es pot llegir
+     */
+    LectorComandes(File fitxer) throws FileNotFoundException {
+        lector = new InputStreamReader(new FileInputStream(fitxer));
+    }
+
+    /**
+     * @brief Diu si queda alguna línia per llegir
+     * @pre ---
+     * @post Retorna cert si no s'ha arribat al final del fitxer, encara que la resta de la línia actual sigui buida
+     * @return boolean Cert si queda entrada
+     */
+    boolean hiHaLinia() {
+        return mirar(0) != -1;
+    }
+
+    /**
+     * @brief Retorna la resta de la línia actual i passa a la següent
+     * @pre hiHaLinia()
+     * @post Retorna els caràcters fins al final de línia (\n, \r o \r\n), que es consumeix però no s'inclou
+     * @return String Resta de la línia
+     * @throws NoSuchElementException Si no queda entrada
+     */
+    String seguentLinia() {
+        if (mirar(0) == -1)
+            throw new NoSuchElementException("No line found");
+        String linia = llegirFins('\n', '\r', false);
+        int c = mirar(0);
+        if (c == '\r') {
+            posicio++;
+            if (mirar(0) == '\n')
+                posicio++;
+        } else if (c == '\n') {
+            posicio++;
+        }
+        return linia;
+    }
+
+    /**
+     * @brief Retorna el token següent
+     * @pre ---
+     * @post Salta un delimitador si n'hi ha un a la posició actual i retorna el text fins al delimitador següent o
+     * el final del fitxer, sense consumir-lo
+     * @return String Token següent (pot ser buit si hi ha dos delimitadors seguits)
+     * @throws NoSuchElementException Si no queda cap token
+     */
+    String seguent() {
+        if (esDelimitador())
+            posicio += delimitador.length;
+        if (mirar(0) == -1)
+            throw new NoSuchElementException();
+        return llegirFins(delimitador[0], delimitador[0], true);
+    }
+
+    /**
+     * @brief Retorna el token següent com a float
+     * @pre El token següent és un nombre real
+     * @post Retorna el valor del token següent
+     * @return float Valor del token
+     * @throws NumberFormatException Si el token no és un nombre real
+     */
+    float seguentFloat() {
+        int n = iniciarToken(false);
+        float valor = valorFloat(vista, posicio, posicio + n);
+        posicio += n;
+        return valor;
+    }
+
+    /**
+     * @brief Retorna el token següent com a enter
+     * @pre El token següent és un enter
+     * @post Retorna el valor del token següent
+     * @return int Valor del token
+     * @throws NumberFormatException Si el token no és un enter
+     */
+    int seguentEnter() {
+        int n = iniciarToken(false);
+        int valor = valorEnter(vista, posicio, posicio + n);
+        posicio += n;
+        return valor;
+    }
+
+    /**
+     * @brief Si el token següent és una operació de la taula, el consumeix i en retorna l'índex
+     * @pre ---
+     * @post Si, després de saltar un delimitador, el token següent és una comanda de t, es consumeix el delimitador i
+     * la comanda i es retorna el seu índex; si no, no es consumeix res i es retorna -1
+     * @param t Taula amb els noms de les operacions
+     * @return int Índex de l'operació a t, o -1 si el token següent no n'és cap
+     */
+    int seguentComanda(TaulaComandes t) {
+        int salt = esDelimitador(0) ? delimitador.length : 0;
+        int n = longitudToken(salt, false);
+        int comanda = t.index(vista, posicio + salt, posicio + salt + n);
+        if (comanda != -1)
+            posicio += salt + n;
+        return comanda;
+    }
+
+    /**
+     * @brief Retorna la paraula següent de la línia
+     * @pre ---
+     * @post Salta un delimitador o un espai si n'hi ha un a la posició actual i retorna el text fins al següent espai,
+     * delimitador o final del fitxer, sense consumir-lo
+     * @return String Paraula següent
+     * @throws NoSuchElementException Si no queda cap paraula
+     */
+    String seguentParaula() {
+        int n = iniciarToken(true);
+        String paraula = new String(buffer, posicio, n);
+        posicio += n;
+        return paraula;
+    }
+
+    /**
+     * @brief Retorna la paraula següent de la línia com a enter
+     * @pre La paraula següent és un enter
+     * @post Llegeix la paraula següent com seguentParaula() i en retorna el valor
+     * @return int Valor de la paraula
+     * @throws NumberFormatException Si la paraula no és un enter
+     */
+    int seguentParaulaEnter() {
+        int n = iniciarToken(true);
+        int valor = valorEnter(vista, posicio, posicio + n);
+        posicio += n;
+        return valor;
+    }
+
+    /**
+     * @brief Retorna la paraula següent de la línia com a double
+     * @pre La paraula següent és un nombre real
+     * @post Llegeix la paraula següent com seguentParaula() i en retorna el valor
+     * @return double Valor de la paraula
+     * @throws NumberFormatException Si la paraula no és un nombre real
+     */
+    double seguentParaulaDouble() {
+        int n = iniciarToken(true);
+        double valor = valorDouble(vista, posicio, posicio + n);
+        posicio += n;
+        return valor;
+    }
+
+    /**
+     * @brief Diu si queda alguna paraula a la línia actual
+     * @pre S'ha llegit alguna paraula de la línia actual
+     * @post Retorna cert si després de la posició actual hi ha espais i algun caràcter abans del final de línia,
+     * com els camps que String.split(" ") no descartaria
+     * @return boolean Cert si queda alguna paraula
+     */
+    boolean hiHaParaula() {
+        int i = 0;
+        while (mirar(i) == ' ')
+            i++;
+        return i > 0 && mirar(i) != -1 && !esDelimitador(i);
+    }
+
+    /**
+     * @brief Descarta la resta de la línia actual
+     * @pre ---
+     * @post Consumeix els caràcters fins al delimitador següent o el final del fitxer, sense consumir-lo
+     */
+    void saltarLinia() {
+        posicio += longitudToken(0, false);
+    }
+
+    /**
+     * @brief Tanca el fitxer
+     * @pre ---
+     * @post El fitxer queda tancat
+     */
+    void tancar() {
+        try {
+            lector.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @brief Llegeix fins al primer caràcter a o b (si delimitador, només quan hi comença un delimitador sencer) o el
+     * final del fitxer, sense consumir-lo
+     */
+    private String llegirFins(char a, char b, boolean delimitadorSencer) {
+        token.setLength(0);
+        while (true) {
+            int j = posicio;
+            while (j < limit && buffer[j] != a && buffer[j] != b)
+                j++;
+            if (j < limit) {
+                String resultat;
+                if (token.length() == 0) {
+                    resultat = new String(buffer, posicio, j - posicio);
+                } else {
+                    token.append(buffer, posicio, j - posicio);
+                    resultat = null;
+                }
+                posicio = j;
+                if (!delimitadorSencer || esDelimitador())
+                    return resultat != null ? resultat : token.toString();
+                // Només coincideix el primer caràcter del delimitador: forma part del token
+                if (resultat != null)
+                    token.append(resultat);
+                token.append(buffer[posicio++]);
+            } else {
+                token.append(buffer, posicio, limit - posicio);
+                posicio = limit;
+                if (!omplir())
+                    return token.toString();
+            }
+        }
+    }
+
+    /**
+     * @brief Retorna el valor de l'enter format pels caràcters de s entre inici i fi
+     * @pre ---
+     * @post Retorna el mateix que Integer.parseInt amb el text entre inici i fi (buit si fi < inici)
+     * @param s Text
+     * @param inici Posició del primer caràcter
+     * @param fi Posició següent a l'últim caràcter
+     * @return int Valor de l'enter
+     * @throws NumberFormatException Si el text no és un enter
+     */
+    static int valorEnter(CharSequence s, int inici, int fi) {
+        int i = inici;
+        boolean negatiu = i < fi && s.charAt(i) == '-';
+        if (negatiu || (i < fi && s.charAt(i) == '+'))
+            i++;
+        // Amb 9 xifres o menys el valor no pot desbordar
+        if (fi - i <= 0 || fi - i > 9)
+            return Integer.parseInt(s.subSequence(inici, Math.max(inici, fi)).toString());
+        int valor = 0;
+        for (; i < fi; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+                return Integer.parseInt(s.subSequence(inici, fi).toString());
+            valor = valor * 10 + (c - '0');
+        }
+        return negatiu ? -valor : valor;
+    }
+
+    /**
+     * @brief Retorna el valor del float format pels caràcters de s entre inici i fi
+     * @pre ---
+     * @post Retorna el mateix que Float.parseFloat amb el text entre inici i fi (buit si fi < inici)
+     * @param s Text
+     * @param inici Posició del primer caràcter
+     * @param fi Posició següent a l'últim caràcter
+     * @return float Valor del nombre
+     * @throws NumberFormatException Si el text no és un nombre real
+     */
+    static float valorFloat(CharSequence s, int inici, int fi) {
+        // Camí ràpid per a xifres amb un punt opcional: si la mantissa i la potència de deu són exactes en float,
+        // una sola divisió dona el float correctament arrodonit, igual que Float.parseFloat
+        int i = inici;
+        boolean negatiu = i < fi && s.charAt(i) == '-';
+        if (negatiu || (i < fi && s.charAt(i) == '+'))
+            i++;
+        int mantissa = 0;
+        int xifres = 0;
+        int decimals = -1;
+        for (; i < fi; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9' && mantissa < (1 << 20)) {
+                mantissa = mantissa * 10 + (c - '0');
+                xifres++;
+                if (decimals >= 0)
+                    decimals++;
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                break;
+            }
+        }
+        if (i < fi || xifres == 0 || decimals >= POTENCIES_DEU.length)
+            return Float.parseFloat(s.subSequence(inici, Math.max(inici, fi)).toString());
+        float valor = decimals > 0 ? mantissa / POTENCIES_DEU[decimals] : mantissa;
+        return negatiu ? -valor : valor;
+    }
+
+    /**
+     * @brief Retorna el valor del double format pels caràcters de s entre inici i fi
+     * @pre ---
+     * @post Retorna el mateix que Double.parseDouble amb el text entre inici i fi (buit si fi < inici)
+     * @param s Text
+     * @param inici Posició del primer caràcter
+     * @param fi Posició següent a l'últim caràcter
+     * @return double Valor del nombre
+     * @throws NumberFormatException Si el text no és un nombre real
+     */
+    static double valorDouble(CharSequence s, int inici, int fi) {
+        // Mateix camí ràpid que valorFloat, amb mantisses de fins a 2^53 i potències de fins a 10^22
+        int i = inici;
+        boolean negatiu = i < fi && s.charAt(i) == '-';
+        if (negatiu || (i < fi && s.charAt(i) == '+'))
+            i++;
+        long mantissa = 0;
+        int xifres = 0;
+        int decimals = -1;
+        for (; i < fi; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9' && mantissa < (1L << 49)) {
+                mantissa = mantissa * 10 + (c - '0');
+                xifres++;
+                if (decimals >= 0)
+                    decimals++;
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                break;
+            }
+        }
+        if (i < fi || xifres == 0 || decimals >= POTENCIES_DEU_DOUBLE.length)
+            return Double.parseDouble(s.subSequence(inici, Math.max(inici, fi)).toString());
+        double valor = decimals > 0 ? mantissa / POTENCIES_DEU_DOUBLE[decimals] : mantissa;
+        return negatiu ? -valor : valor;
+    }
+
+    /**
+     * @brief Salta el separador anterior al token o la paraula següent i en retorna la longitud
+     * @return int Longitud del token (o de la paraula, si paraula), que queda sencer al buffer a partir de posicio
+     * @throws NoSuchElementException Si no queda cap caràcter després del separador
+     */
+    private int iniciarToken(boolean paraula) {
+        if (esDelimitador(0))
+            posicio += delimitador.length;
+        else if (paraula && mirar(0) == ' ')
+            posicio++;
+        if (mirar(0) == -1)
+            throw new NoSuchElementException();
+        return longitudToken(0, paraula);
+    }
+
+    /**
+     * @brief Retorna quants caràcters hi ha des de la posició actual més desde fins al següent delimitador (o espai,
+     * si paraula) o el final del fitxer; en acabar, tots són al buffer
+     */
+    private int longitudToken(int desde, boolean paraula) {
+        int i = desde;
+        while (true) {
+            int c = mirar(i);
+            if (c == -1 || (paraula && c == ' ') || (c == delimitador[0] && esDelimitador(i)))
+                return i - desde;
+            i++;
+        }
+    }
+
+    /**
+     * @brief Diu si a la posició actual comença un delimitador
+     */
+    private boolean esDelimitador() {
+        return esDelimitador(0);
+    }
+
+    /**
+     * @brief Diu si i posicions després de l'actual comença un delimitador
+     */
+    private boolean esDelimitador(int i) {
+        for (int j = 0; j < delimitador.length; j++) {
+            if (mirar(i + j) != delimitador[j])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @brief Retorna el caràcter i posicions després de l'actual, o -1 si el fitxer s'acaba abans
+     */
+    private int mirar(int i) {
+        while (posicio + i >= limit) {
+            if (!omplir())
+                return -1;
+        }
+        return buffer[posicio + i];
+    }
+
+    /**
+     * @brief Mou els caràcters no consumits al principi del buffer i hi llegeix un bloc més del fitxer
+     * @return boolean Fals si ja s'havia arribat al final del fitxer
+     */
+    private boolean omplir() {
+        if (fi)
+            return false;
+        if (posicio > 0) {
+            System.arraycopy(buffer, posicio, buffer, 0, limit - posicio);
+            limit -= posicio;
+            posicio = 0;
+        }
+        if (limit == buffer.length) {
+            char[] nou = new char[buffer.length * 2];
+            System.arraycopy(buffer, 0, nou, 0, limit);
+            buffer = nou;
+            vista = CharBuffer.wrap(buffer);
+        }
+        try {
+            int n = lector.read(buffer, limit, buffer.length - limit);
+            if (n == -1) {
+                fi = true;
+                return false;
+            }
+            limit += n;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+//Pol Martorell Herrera
+/**
+ * @file MesuraLectura.java
+ * @brief Mesura la velocitat de lectura dels fitxers d'operacions.
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Locale;
+
+/**
+ * @class MesuraLectura
+ * @brief Punt d'entrada separat per mesurar quants megabytes per segon llegeix i interpreta LectorComandes.
+ *
+ * El bucle cronometrat reconeix les operacions amb la taula de comandes del simulador i en llegeix els camps amb els
+ * mateixos lectors (noms, enters, reals i coordenades) que SimuladorModeText, però no executa cap operació, perquè el
+ * temps de les operacions no amagui el de l'entrada. Els valors llegits se sumen en un valor de control que s'escriu
+ * al final, perquè la lectura no es pugui eliminar. La simulació normal (BeWater) no mesura res ni escriu res a la
+ * sortida d'error.
+ */
+public abstract class MesuraLectura {
+
+    private static long control = 0; ///< Suma dels valors llegits
+
+    /**
+     * @brief Llegeix les operacions de cada fitxer i n'escriu la velocitat de lectura.
+     * @param args Noms dels fitxers d'entrada, sense l'extensió .txt.
+     */
+    public static void main(String[] args) {
+        for (String nom : args) {
+            try {
+                File fitxer = new File(nom + ".txt");
+                LectorComandes sc = new LectorComandes(fitxer);
+                control = 0;
+                long inici = System.nanoTime();
+                llegir(sc);
+                double segons = (System.nanoTime() - inici) / 1e9;
+                sc.tancar();
+                double megabytes = fitxer.length() / 1e6;
+                System.out.printf(Locale.US, "%s: %.2f MB en %.3f s (%.2f MB/s, control %d)%n", nom, megabytes,
+                        segons, megabytes / segons, control);
+            } catch (FileNotFoundException e) {
+                System.out.println("Arxiu no trobat: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @brief Llegeix totes les operacions del fitxer com SimuladorModeText, sense executar-les.
+     * @pre sc és al principi del fitxer
+     * @post S'ha llegit tot el fitxer i control compta els valors llegits
+     */
+    private static void llegir(LectorComandes sc) {
+        int seguent = -1;
+        while (sc.hiHaLinia()) {
+            if (seguent != -1) {
+                seguent = llegirCamps(seguent, sc);
+            } else {
+                String ent = sc.seguentLinia();
+                if (!ent.trim().isEmpty())
+                    seguent = SimuladorModeText.COMANDES.index(ent);
+            }
+        }
+    }
+
+    /**
+     * @brief Llegeix els camps de l'operació comanda com SimuladorModeText.
+     * @pre comanda és l'índex d'una operació a SimuladorModeText.COMANDES
+     * @post S'han llegit els camps de l'operació; retorna l'índex de la següent operació, si ja s'ha llegit, o -1
+     */
+    private static int llegirCamps(int comanda, LectorComandes sc) {
+        int opcio = -1;
+        control += comanda;
+        switch (comanda) {
+            case SimuladorModeText.TERMINAL:
+                comptar(sc.seguent());
+                comptar(SimuladorModeText.partir_coordenades(sc.seguent()));
+                control += (long) sc.seguentFloat();
+                break;
+
+            case SimuladorModeText.ORIGEN:
+            case SimuladorModeText.CONNEXIO:
+                comptar(sc.seguent());
+                comptar(SimuladorModeText.partir_coordenades(sc.seguent()));
+                break;
+
+            case SimuladorModeText.CONNECTAR:
+                comptar(sc.seguent());
+                comptar(sc.seguent());
+                control += (long) sc.seguentFloat();
+                break;
+
+            case SimuladorModeText.ABONAR:
+                comptar(sc.seguent());
+                comptar(sc.seguent());
+                break;
+
+            case SimuladorModeText.BACKTRACK:
+                control += sc.seguentEnter();
+                break;
+
+            case SimuladorModeText.CABAL:
+            case SimuladorModeText.DEMANDA:
+                comptar(sc.seguent());
+                control += (long) sc.seguentFloat();
+                break;
+
+            case SimuladorModeText.CABAL_MINIM:
+                comptar(sc.seguent());
+                String percentatge = sc.seguent();
+                control += (long) LectorComandes.valorFloat(percentatge, 0, percentatge.length() - 1);
+                break;
+
+            case SimuladorModeText.EXCES_CABAL:
+            case SimuladorModeText.CABAL_ABONATS:
+                while (sc.hiHaLinia() && (opcio = sc.seguentComanda(SimuladorModeText.COMANDES)) == -1)
+                    comptar(sc.seguent());
+                break;
+
+            case SimuladorModeText.SITUACIO:
+                while (sc.hiHaLinia() && (opcio = sc.seguentComanda(SimuladorModeText.COMANDES)) == -1) {
+                    comptar(sc.seguentParaula());
+                    comptar(sc.seguentParaula());
+                    sc.saltarLinia();
+                }
+                break;
+
+            case SimuladorModeText.PROXIMITAT:
+                comptar(SimuladorModeText.partir_coordenades(sc.seguentParaula()));
+                if (sc.hiHaParaula())
+                    control += sc.seguentParaulaEnter();
+                sc.saltarLinia();
+                while (sc.hiHaLinia() && (opcio = sc.seguentComanda(SimuladorModeText.COMANDES)) == -1)
+                    comptar(sc.seguent());
+                break;
+
+            case SimuladorModeText.MIN_CUT:
+                comptar(sc.seguentParaula());
+                if (sc.hiHaParaula())
+                    control += sc.seguentParaulaEnter();
+                sc.saltarLinia();
+                break;
+
+            case SimuladorModeText.NODES_PROPERS:
+                comptar(SimuladorModeText.partir_coordenades(sc.seguentParaula()));
+                control += sc.seguentParaulaEnter();
+                if (sc.hiHaParaula())
+                    control += (long) sc.seguentParaulaDouble();
+                sc.saltarLinia();
+                break;
+
+            case SimuladorModeText.REGIO:
+                comptar(SimuladorModeText.partir_coordenades(sc.seguentParaula()));
+                String segon = sc.seguentParaula();
+                sc.saltarLinia();
+                if (segon.indexOf(',') >= 0)
+                    comptar(SimuladorModeText.partir_coordenades(segon));
+                else
+                    control += (long) LectorComandes.valorDouble(segon, 0, segon.length());
+                break;
+
+            default:
+                comptar(sc.seguent());
+                break;
+        }
+        return opcio;
+    }
+
+    /**
+     * @brief Suma un camp de text al valor de control
+     */
+    private static void comptar(String camp) {
+        control += camp.length();
+    }
+
+    /**
+     * @brief Suma unes coordenades al valor de control
+     */
+    private static void comptar(Coordenades c) {
+        control += Float.floatToRawIntBits(c.latitud()) ^ Float.floatToRawIntBits(c.longitud());
+    }
+}
@@ -0,0 +1,156 @@
+//Pol Martorell Herrera
+/**
+ * @file MonticlePropers.java
+ * @brief Monticle de mida fitada amb els nodes més propers a un punt
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @class MonticlePropers
+ * @brief Monticle de màxims de mida fitada amb els millors candidats: el cim és el més llunyà.
+ *
+ * Cada candidat és un node amb una distància, que pot ser qualsevol mesura creixent amb la distància real (la
+ * corda al quadrat a IndexEspacial, els km a SeleccioPropers). Els empats de distància es desfan per l'id del node,
+ * com a GestorXarxes.nodesOrdenats. Afegir un candidat costa O(log capacitat).
+ */
+class MonticlePropers {
+
+    private final int capacitat;     ///< Nombre màxim de candidats
+    private double[] distancies;     ///< Distància de cada candidat
+    private Node_X[] nodes;          ///< Node de cada candidat
+    private int mida = 0;            ///< Nombre de candidats
+
+    /**
+     * @brief Constructor
+     * @pre capacitat > 0
+     * @post Crea un monticle buit que guarda com a molt capacitat candidats
+     * @param capacitat Nombre màxim de candidats
+     */
+    MonticlePropers(int capacitat) {
+        this.capacitat = capacitat;
+        distancies = new double[Math.min(capacitat, 16)];
+        nodes = new Node_X[distancies.length];
+    }
+
+    /**
+     * @brief Diu si el monticle ja té capacitat candidats
+     * @pre ---
+     * @post Retorna cert si un candidat nou només pot entrar expulsant-ne un altre
+     * @return boolean Cert si el monticle és ple
+     */
+    boolean ple() {
+        return mida >= capacitat;
+    }
+
+    /**
+     * @brief Retorna la distància del candidat més llunyà
+     * @pre El monticle no és buit
+     * @post Retorna la distància del cim
+     * @return double Distància del candidat més llunyà
+     */
+    double maxim() {
+        return distancies[0];
+    }
+
+    /**
+     * @brief Afegeix el candidat si hi cap o si va abans que el més llunyà
+     * @pre ---
+     * @post El monticle conté els millors candidats d'entre els oferts fins ara
+     * @param d Distància del candidat
+     * @param node Node del candidat
+     * @return Node_X El candidat que queda fora: null si hi cabia, el candidat expulsat si node ha entrat al seu lloc,
+     * o el mateix node si no ha entrat
+     */
+    Node_X oferir(double d, Node_X node) {
+        if (mida < capacitat) {
+            if (mida == nodes.length) {
+                distancies = Arrays.copyOf(distancies, mida * 2);
+                nodes = Arrays.copyOf(nodes, mida * 2);
+            }
+            distancies[mida] = d;
+            nodes[mida] = node;
+            pujar(mida++);
+            return null;
+        }
+        if (!abans(d, node, distancies[0], nodes[0]))
+            return node;
+        Node_X expulsat = nodes[0];
+        distancies[0] = d;
+        nodes[0] = node;
+        baixar(0);
+        return expulsat;
+    }
+
+    /**
+     * @brief Buida el monticle i retorna els candidats ordenats
+     * @pre ---
+     * @post Retorna els candidats de més a menys propers; el monticle queda buit
+     * @return List<Node_X> Candidats ordenats per distància i, en cas d'empat, per id
+     */
+    List<Node_X> ordenats() {
+        Node_X[] resultat = new Node_X[mida];
+        while (mida > 0) {
+            resultat[mida - 1] = nodes[0];
+            mida--;
+            distancies[0] = distancies[mida];
+            nodes[0] = nodes[mida];
+            nodes[mida] = null;
+            baixar(0);
+        }
+        return new ArrayList<>(Arrays.asList(resultat));
+    }
+
+    /**
+     * @brief Diu si el candidat (d1, n1) va abans que (d2, n2)
+     */
+    private static boolean abans(double d1, Node_X n1, double d2, Node_X n2) {
+        if (d1 != d2)
+            return d1 < d2;
+        return n1.id().compareTo(n2.id()) < 0;
+    }
+
+    /**
+     * @brief Puja el candidat de la posició i fins que el seu pare va després
+     */
+    private void pujar(int i) {
+        while (i > 0) {
+            int p = (i - 1) / 2;
+            if (!abans(distancies[p], nodes[p], distancies[i], nodes[i]))
+                break;
+            intercanviar(i, p);
+            i = p;
+        }
+    }
+
+    /**
+     * @brief Baixa el candidat de la posició i fins que els seus fills van abans
+     */
+    private void baixar(int i) {
+        while (true) {
+            int f = 2 * i + 1;
+            if (f >= mida)
+                break;
+            if (f + 1 < mida && abans(distancies[f], nodes[f], distancies[f + 1], nodes[f + 1]))
+                f++;
+            if (!abans(distancies[i], nodes[i], distancies[f], nodes[f]))
+                break;
+            intercanviar(i, f);
+            i = f;
+        }
+    }
+
+    /**
+     * @brief Intercanvia els candidats de les posicions a i b
+     */
+    private void intercanviar(int a, int b) {
+        double d = distancies[a];
+        distancies[a] = distancies[b];
+        distancies[b] = d;
+        Node_X n = nodes[a];
+        nodes[a] = nodes[b];
+        nodes[b] = n;
+    }
+}
@@ -4,8 +4,9 @@
  * @brief Classe que representa un node terminal d'una xarxa de distribució d'aigua.
  */
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * @class PuntTerminal
@@ -18,7 +19,7 @@ public class PuntTerminal extends Node_X {
 
     private final float demandaPunta; ///< Demanda punta d'aigua del terminal en l/s
     private float demandaActual;      ///< Demanda actual d'aigua del terminal en l/s
-    private List<String> abonats = new ArrayList<>(); ///< Llista d'abonats al punt terminal
+    private Set<String> abonats = new HashSet<>(); ///< Conjunt d'abonats al punt terminal
 
     /**
      * @brief Constructor de la classe PuntTerminal.
@@ -69,25 +70,33 @@ public class PuntTerminal extends Node_X {
     }
 
     /**
-     * @brief Afegeix un abonat a la llista d'abonats del terminal.
+     * @brief Afegeix un abonat al conjunt d'abonats del terminal.
      * @param id Identificador de l'abonat.
      * @pre ---
-     * @post S'ha afegit l'abonat amb identificador id a la llista d'abonats.
+     * @post L'abonat amb identificador id és al conjunt d'abonats.
      */
     public void afegir_abonat(String id) {
-        if (!abonats.contains(id) || abonats.size() < 3) {
-            abonats.add(id);
-        }
+        abonats.add(id);
     }
 
     /**
-     * @brief Comprova si un abonat està a la llista d'abonats del terminal.
+     * @brief Comprova si un abonat està al conjunt d'abonats del terminal.
      * @param id Identificador de l'abonat.
-     * @return True si l'abonat està a la llista, false en cas contrari.
+     * @return True si l'abonat hi és, false en cas contrari.
      * @pre ---
      * @post Retorna si l'abonat amb identificador id és abonat al punt terminal.
      */
     public boolean es_abonat(String id) {
         return abonats.contains(id);
     }
+
+    /**
+     * @brief Retorna els abonats del terminal.
+     * @return Conjunt (no modificable) dels identificadors dels abonats.
+     * @pre ---
+     * @post Retorna els abonats del terminal.
+     */
+    public Set<String> abonats() {
+        return Collections.unmodifiableSet(abonats);
+    }
 }
\ No newline at end of file
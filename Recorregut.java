@@ -0,0 +1,312 @@
+//Natàlia Masgrau Vila
+/**
+ * @file Recorregut.java
+ * @brief Recorreguts reutilitzables (amplada, profunditat i ordre topològic) sobre els identificadors densos d'una xarxa de distribució d'aigua.
+ */
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * @class Recorregut
+ * @brief Nucli de recorreguts sobre l'índex d'una Xarxa que no reserva memòria per node.
+ *
+ * La cua és un buffer circular d'enters, la pila del recorregut en profunditat són vectors d'enters i els
+ * nodes visitats es marquen amb l'època del recorregut, de manera que no cal esborrar res entre recorreguts.
+ * Cada node es marca quan s'encua o s'apila, i per tant hi entra com a molt una vegada; el número d'arribada
+ * de cada node visitat permet als algorismes guardar les seves dades en vectors de la mida del que s'ha
+ * visitat. Els vectors només creixen quan la xarxa té més nodes que el recorregut anterior. Una mateixa
+ * instància no admet recorreguts niats.
+ */
+class Recorregut {
+
+    static final int SORTIDES = 1; ///< Segueix les canonades en el seu sentit
+    static final int ENTRADES = 2; ///< Segueix les canonades en sentit contrari
+    static final int AMBDUES = SORTIDES | ENTRADES; ///< Segueix les canonades en tots dos sentits
+
+    private final IndexXarxa index; ///< Índex d'adjacència de la xarxa
+    private int[] cua = new int[16];   ///< Buffer circular de la cua (mida potència de 2)
+    private int[] marca = new int[16]; ///< Època de l'últim recorregut que ha encuat cada node
+    private int[] numero = new int[16]; ///< Ordre d'arribada de cada node al recorregut que l'ha marcat
+    private int[] pila = new int[16];  ///< Nodes de la pila del recorregut en profunditat
+    private int[] seguent = new int[16]; ///< Veí següent a explorar de cada node de la pila
+    private int[] arribada = new int[16]; ///< Canonada per on s'ha arribat a cada node de la pila (-1 a l'inici)
+    private int epoca = 0;             ///< Època del recorregut actual
+    private int visitats = 0;          ///< Nombre de nodes marcats al recorregut actual
+
+    /**
+     * @interface Visitant
+     * @brief Accions d'un recorregut en profunditat; per defecte s'admeten tots els nodes i no es fa res.
+     */
+    interface Visitant {
+        /**
+         * @brief Diu si es pot passar al node w; els nodes no admesos no es visiten.
+         */
+        default boolean admet(int w) {
+            return true;
+        }
+
+        /**
+         * @brief Es crida en arribar per primer cop al node v per la canonada e (-1 si v és un inici).
+         */
+        default void entrar(int v, int e) {
+        }
+
+        /**
+         * @brief Es crida per cada canonada e que va de u a un node w ja visitat.
+         */
+        default void veiVisitat(int u, int w, int e) {
+        }
+
+        /**
+         * @brief Es crida quan s'han explorat tots els veïns de v, que s'havia visitat per la canonada e.
+         */
+        default void sortir(int v, int e) {
+        }
+    }
+
+    /**
+     * @brief Constructor de Recorregut
+     * @param index Índex d'adjacència de la xarxa.
+     * Pre: ---
+     * Post: Crea un recorregut sobre index.
+     */
+    Recorregut(IndexXarxa index) {
+        this.index = index;
+    }
+
+    /**
+     * @brief Recorre en amplada els nodes accessibles des d'inici.
+     * @param inici Identificador dens del node d'inici, que sempre es visita.
+     * @param sentit SORTIDES, ENTRADES o AMBDUES.
+     * @param admet Diu si es pot encuar un veí; els nodes no admesos no es visiten ni s'hi passa.
+     * @param visitant Rep cada node visitat, en ordre de distància a inici.
+     * Pre: inici és un node de l'índex i no hi ha cap altre recorregut en curs amb aquesta instància.
+     * Post: visitant ha rebut una vegada cada node accessible des d'inici passant només per nodes admesos.
+     */
+    void amplada(int inici, int sentit, IntPredicate admet, IntConsumer visitant) {
+        preparar();
+        int mascara = cua.length - 1;
+        int cap = 0, fi = 0;
+        marcarNode(inici);
+        cua[fi++ & mascara] = inici;
+        while (cap != fi) {
+            int u = cua[cap++ & mascara];
+            visitant.accept(u);
+            if ((sentit & SORTIDES) != 0) {
+                for (int k = index.iniciSortides(u); k < index.fiSortides(u); k++) {
+                    int w = index.desti(index.sortida(k));
+                    if (marca[w] != epoca && admet.test(w)) {
+                        marcarNode(w);
+                        cua[fi++ & mascara] = w;
+                    }
+                }
+            }
+            if ((sentit & ENTRADES) != 0) {
+                for (int k = index.iniciEntrades(u); k < index.fiEntrades(u); k++) {
+                    int w = index.origen(index.entrada(k));
+                    if (marca[w] != epoca && admet.test(w)) {
+                        marcarNode(w);
+                        cua[fi++ & mascara] = w;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief Recorre en profunditat els nodes accessibles des d'inici.
+     * @param inici Identificador dens del node d'inici, que sempre es visita.
+     * @param sentit SORTIDES, ENTRADES o AMBDUES; amb AMBDUES es miren primer les sortides de cada node.
+     * @param visitant Accions del recorregut.
+     * Pre: inici és un node de l'índex i no hi ha cap altre recorregut en curs amb aquesta instància.
+     * Post: visitant ha entrat i sortit una vegada de cada node accessible des d'inici passant només per nodes
+     * admesos, en preordre i postordre respectivament.
+     */
+    void profunditat(int inici, int sentit, Visitant visitant) {
+        preparar();
+        visitarProfunditat(inici, sentit, visitant);
+    }
+
+    /**
+     * @brief Recorre en profunditat els nodes accessibles des de qualsevol dels inicis, en l'ordre donat.
+     * @param inicis Identificadors densos dels nodes d'inici.
+     * @param sentit SORTIDES, ENTRADES o AMBDUES; amb AMBDUES es miren primer les sortides de cada node.
+     * @param visitant Accions del recorregut.
+     * Pre: Els inicis són nodes de l'índex i no hi ha cap altre recorregut en curs amb aquesta instància.
+     * Post: Cada inici no visitat per un recorregut anterior comença un recorregut nou; cap node es visita dues vegades.
+     */
+    void profunditat(int[] inicis, int sentit, Visitant visitant) {
+        preparar();
+        for (int s : inicis) {
+            if (marca[s] != epoca)
+                visitarProfunditat(s, sentit, visitant);
+        }
+    }
+
+    /**
+     * @brief Visita tots els nodes en ordre topològic (algorisme de Kahn).
+     * @param sentit SORTIDES: un node es visita quan ja s'han visitat els orígens de totes les seves entrades;
+     * ENTRADES: quan ja s'han visitat els destins de totes les seves sortides.
+     * @param visitant Rep cada node visitat.
+     * Pre: sentit és SORTIDES o ENTRADES i no hi ha cap altre recorregut en curs amb aquesta instància.
+     * Post: visitant ha rebut en ordre topològic tots els nodes que no formen part de cap cicle ni en depenen;
+     * marcat(v) diu si v s'ha visitat. Les canonades d'un node a ell mateix no compten.
+     */
+    void topologic(int sentit, IntConsumer visitant) {
+        preparar();
+        int n = index.nNodes();
+        int[] pendents = seguent;
+        int mascara = cua.length - 1;
+        int cap = 0, fi = 0;
+        for (int v = 0; v < n; v++) {
+            pendents[v] = 0;
+            if (sentit == SORTIDES) {
+                for (int k = index.iniciEntrades(v); k < index.fiEntrades(v); k++) {
+                    if (index.origen(index.entrada(k)) != v)
+                        pendents[v]++;
+                }
+            } else {
+                for (int k = index.iniciSortides(v); k < index.fiSortides(v); k++) {
+                    if (index.desti(index.sortida(k)) != v)
+                        pendents[v]++;
+                }
+            }
+            if (pendents[v] == 0) {
+                marcarNode(v);
+                cua[fi++ & mascara] = v;
+            }
+        }
+        while (cap != fi) {
+            int u = cua[cap++ & mascara];
+            visitant.accept(u);
+            if (sentit == SORTIDES) {
+                for (int k = index.iniciSortides(u); k < index.fiSortides(u); k++) {
+                    int w = index.desti(index.sortida(k));
+                    if (w != u && --pendents[w] == 0) {
+                        marcarNode(w);
+                        cua[fi++ & mascara] = w;
+                    }
+                }
+            } else {
+                for (int k = index.iniciEntrades(u); k < index.fiEntrades(u); k++) {
+                    int w = index.origen(index.entrada(k));
+                    if (w != u && --pendents[w] == 0) {
+                        marcarNode(w);
+                        cua[fi++ & mascara] = w;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief Marca un conjunt de nodes amb una època nova, sense recórrer res.
+     * @param ids Identificadors densos dels nodes a marcar.
+     * Pre: Els identificadors són de nodes de l'índex i no hi ha cap recorregut en curs amb aquesta instància.
+     * Post: marcat(v) és cert si i només si v és a ids, fins al següent recorregut o marcatge.
+     */
+    void marcar(int[] ids) {
+        preparar();
+        for (int v : ids)
+            marcarNode(v);
+    }
+
+    /**
+     * @brief Diu si el node v té la marca de l'últim recorregut o marcatge.
+     * @param v Identificador dens del node.
+     * @return Cert si v s'ha marcat a l'època actual.
+     * Pre: v és un node de l'índex.
+     * Post: Retorna cert si v s'ha encuat a l'últim recorregut o és dels nodes de l'últim marcatge.
+     */
+    boolean marcat(int v) {
+        return marca[v] == epoca;
+    }
+
+    /**
+     * @brief Retorna l'ordre d'arribada del node v a l'últim recorregut o marcatge.
+     * @param v Identificador dens del node.
+     * @return Nombre de nodes marcats abans que v, o -1 si v no s'ha marcat.
+     * Pre: v és un node de l'índex.
+     * Post: Els nodes marcats tenen números diferents entre 0 i visitats() - 1.
+     */
+    int numero(int v) {
+        return marca[v] == epoca ? numero[v] : -1;
+    }
+
+    /**
+     * @brief Retorna quants nodes s'han marcat a l'últim recorregut o marcatge.
+     * @return Nombre de nodes marcats.
+     * Pre: ---
+     * Post: Retorna el nombre de nodes amb marcat(v) cert.
+     */
+    int visitats() {
+        return visitats;
+    }
+
+    /**
+     * @brief Recorre en profunditat des de s amb la pila compartida.
+     * Pre: s no està marcat a l'època actual.
+     */
+    private void visitarProfunditat(int s, int sentit, Visitant visitant) {
+        int cim = 0;
+        marcarNode(s);
+        visitant.entrar(s, -1);
+        pila[cim] = s;
+        seguent[cim] = 0;
+        arribada[cim++] = -1;
+        while (cim > 0) {
+            int u = pila[cim - 1];
+            int nSortides = (sentit & SORTIDES) != 0 ? index.grauSortida(u) : 0;
+            int nVeins = nSortides + ((sentit & ENTRADES) != 0 ? index.grauEntrada(u) : 0);
+            if (seguent[cim - 1] < nVeins) {
+                int k = seguent[cim - 1]++;
+                int e = k < nSortides ? index.sortida(index.iniciSortides(u) + k) : index.entrada(index.iniciEntrades(u) + k - nSortides);
+                int w = k < nSortides ? index.desti(e) : index.origen(e);
+                if (marca[w] == epoca) {
+                    visitant.veiVisitat(u, w, e);
+                } else if (visitant.admet(w)) {
+                    marcarNode(w);
+                    visitant.entrar(w, e);
+                    pila[cim] = w;
+                    seguent[cim] = 0;
+                    arribada[cim++] = e;
+                }
+            } else {
+                cim--;
+                visitant.sortir(u, arribada[cim]);
+            }
+        }
+    }
+
+    /**
+     * @brief Marca el node v amb l'època actual i li dona el número d'arribada següent.
+     */
+    private void marcarNode(int v) {
+        marca[v] = epoca;
+        numero[v] = visitats++;
+    }
+
+    /**
+     * @brief Prepara els vectors i l'època per a un recorregut nou.
+     * Pre: ---
+     * Post: Els vectors tenen lloc per a tots els nodes de l'índex i cap node té la marca de l'època actual.
+     */
+    private void preparar() {
+        int n = index.nNodes();
+        visitats = 0;
+        if (n > cua.length) {
+            cua = new int[Integer.highestOneBit(n - 1) << 1];
+            marca = Arrays.copyOf(marca, cua.length);
+            numero = new int[cua.length];
+            pila = new int[cua.length];
+            seguent = new int[cua.length];
+            arribada = new int[cua.length];
+        }
+        if (++epoca == 0) {
+            Arrays.fill(marca, 0);
+            epoca = 1;
+        }
+    }
+}
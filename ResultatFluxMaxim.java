@@ -0,0 +1,75 @@
+//Natàlia Masgrau Vila
+/**
+ * @file ResultatFluxMaxim.java
+ * @brief Resultat del càlcul del flux màxim d'una xarxa de distribució d'aigua.
+ */
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @class ResultatFluxMaxim
+ * @brief Flux màxim total i flux de cada canonada, opcionalment amb el flux de cada camí augmentant.
+ */
+public class ResultatFluxMaxim {
+
+    private final float fluxTotal;               ///< Flux màxim total
+    private final Map<Canonada, Float> fluxos;   ///< Flux de cada canonada
+    private final List<Float> camins;            ///< Flux de cada camí augmentant, en ordre (buit si no s'han registrat)
+
+    /**
+     * @brief Constructor de ResultatFluxMaxim
+     * @param fluxTotal Flux màxim total.
+     * @param fluxos Flux de cada canonada.
+     * @param camins Flux de cada camí augmentant.
+     * Pre: ---
+     * Post: Crea el resultat amb les dades donades.
+     */
+    ResultatFluxMaxim(float fluxTotal, Map<Canonada, Float> fluxos, List<Float> camins) {
+        this.fluxTotal = fluxTotal;
+        this.fluxos = Collections.unmodifiableMap(fluxos);
+        this.camins = Collections.unmodifiableList(camins);
+    }
+
+    /**
+     * @brief Retorna el flux màxim total.
+     * @return Flux màxim total.
+     * Pre: ---
+     * Post: Retorna el flux màxim total.
+     */
+    public float fluxTotal() {
+        return fluxTotal;
+    }
+
+    /**
+     * @brief Retorna el flux de cada canonada.
+     * @return Map no modificable amb el flux de cada canonada.
+     * Pre: ---
+     * Post: Retorna el flux de cada canonada.
+     */
+    public Map<Canonada, Float> fluxos() {
+        return fluxos;
+    }
+
+    /**
+     * @brief Retorna el flux de la canonada c.
+     * @param c Canonada.
+     * @return Flux de la canonada c, o 0 si no pertany a la xarxa.
+     * Pre: ---
+     * Post: Retorna el flux de la canonada c.
+     */
+    public float flux(Canonada c) {
+        return fluxos.getOrDefault(c, 0f);
+    }
+
+    /**
+     * @brief Retorna el flux de cada camí augmentant, en l'ordre en què s'han trobat.
+     * @return Llista no modificable amb el flux de cada camí, buida si no s'han registrat els camins.
+     * Pre: ---
+     * Post: Retorna el flux de cada camí augmentant.
+     */
+    public List<Float> camins() {
+        return camins;
+    }
+}
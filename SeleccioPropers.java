@@ -0,0 +1,64 @@
+//Natàlia Masgrau Vila
+/**
+ * @file SeleccioPropers.java
+ * @brief Selecció en línia dels k nodes més propers a unes coordenades.
+ */
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @class SeleccioPropers
+ * @brief Selecció dels k nodes més propers vistos fins ara, sobre un MonticlePropers.
+ *
+ * Els nodes es poden afegir a mesura que es llegeixen, sense guardar-los tots: la distància de cada node es
+ * calcula una sola vegada i cada node costa O(log k). L'ordre és el de GestorXarxes.nodesOrdenats: per
+ * distància i, en cas d'empat, per id. Un node afegit més d'una vegada només es compta una vegada.
+ */
+public class SeleccioPropers {
+
+    private final Coordenades c;                ///< Coordenades de referència
+    private final MonticlePropers monticle;     ///< Nodes seleccionats amb la seva distància a c
+    private final Set<String> seleccionats = new HashSet<>(); ///< Ids dels nodes del monticle
+
+    /**
+     * @brief Constructor de SeleccioPropers
+     * @param c Coordenades de referència.
+     * @param k Nombre màxim de nodes a seleccionar; si k <= 0 no hi ha límit, com a Xarxa.nodesPropers.
+     * Pre: ---
+     * Post: Crea una selecció buida.
+     */
+    public SeleccioPropers(Coordenades c, int k) {
+        this.c = c;
+        this.monticle = new MonticlePropers(k > 0 ? k : Integer.MAX_VALUE);
+    }
+
+    /**
+     * @brief Afegeix un node a la selecció.
+     * @param node Node candidat.
+     * Pre: ---
+     * Post: La selecció conté els k nodes més propers a c d'entre els afegits fins ara.
+     */
+    public void afegir(Node_X node) {
+        if (seleccionats.contains(node.id()))
+            return;
+        Node_X fora = monticle.oferir(node.coordenades().distancia(c), node);
+        if (fora != node) {
+            seleccionats.add(node.id());
+            if (fora != null)
+                seleccionats.remove(fora.id());
+        }
+    }
+
+    /**
+     * @brief Retorna els nodes seleccionats ordenats.
+     * @return Llista dels com a molt k nodes més propers a c, ordenats per distància i, en cas d'empat, per id.
+     * Pre: ---
+     * Post: Retorna els nodes seleccionats ordenats; la selecció es buida.
+     */
+    public List<Node_X> ordenats() {
+        seleccionats.clear();
+        return monticle.ordenats();
+    }
+}
@@ -0,0 +1,129 @@
+//Natàlia Masgrau Vila
+/**
+ * @file SessioFluxMaxim.java
+ * @brief Sessió de càlcul del flux màxim que admet canvis de capacitats i d'aixetes.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * @class SessioFluxMaxim
+ * @brief Conserva el graf residual del flux màxim d'una component connexa per recalcular-lo de manera incremental.
+ *
+ * Els canvis només afecten la sessió: la xarxa no es modifica. La sessió reflecteix els nodes i les
+ * canonades que existien quan es va crear; els que s'afegeixin després a la xarxa no hi són.
+ */
+public class SessioFluxMaxim {
+
+    private final Xarxa xarxa;             ///< Xarxa de distribució d'aigua
+    private final XarxaResidual residual;  ///< Graf residual amb el flux actual
+
+    /**
+     * @brief Constructor de SessioFluxMaxim
+     * @param xarxa Xarxa de distribució d'aigua.
+     * @param residual Graf residual de la component connexa.
+     * Pre: residual s'ha creat sobre xarxa.
+     * Post: Crea la sessió i calcula el flux màxim inicial.
+     */
+    SessioFluxMaxim(Xarxa xarxa, XarxaResidual residual) {
+        this.xarxa = xarxa;
+        this.residual = residual;
+        residual.fluxMaxim(false);
+    }
+
+    /**
+     * @brief Retorna el flux màxim amb els canvis aplicats fins ara.
+     * @return Resultat amb el flux màxim total i el flux de cada canonada.
+     * Pre: ---
+     * Post: Augmenta el flux on hi ha capacitat nova i en retorna el resultat.
+     */
+    public ResultatFluxMaxim resultat() {
+        return residual.fluxMaxim(false);
+    }
+
+    /**
+     * @brief Retorna les canonades del tall mínim amb els canvis aplicats fins ara.
+     * @return Canonades saturades que limiten el flux màxim.
+     * Pre: ---
+     * Post: Retorna el conjunt de canonades d'un tall mínim entre els orígens i els terminals.
+     */
+    public List<Canonada> tallMinim() {
+        residual.fluxMaxim(false);
+        return residual.tallMinim();
+    }
+
+    /**
+     * @brief Retorna les k canonades del tall mínim amb més guany estimat si se n'amplia la capacitat.
+     * @param k Nombre màxim de canonades a retornar; si k <= 0, no hi ha límit.
+     * @return Llista de parells (canonada, guany estimat) ordenada de més a menys guany.
+     * Pre: ---
+     * Post: El guany estimat d'una canonada és el flux que es podria afegir per un sol camí si la seva capacitat fos il·limitada.
+     * Les canonades sense guany estimat positiu no s'hi inclouen.
+     */
+    public List<Pair<Canonada, Float>> millorsAmpliacions(int k) {
+        residual.fluxMaxim(false);
+        List<Pair<Canonada, Float>> ampliacions = new ArrayList<>();
+        for (Map.Entry<Canonada, Float> guany : residual.guanysAmpliacio().entrySet()) {
+            if (guany.getValue() > 0)
+                ampliacions.add(new Pair<>(guany.getKey(), guany.getValue()));
+        }
+        ampliacions.sort((a, b) -> Float.compare(b.agafarSegon(), a.agafarSegon()));
+        if (k <= 0 || k >= ampliacions.size())
+            return ampliacions;
+        return ampliacions.subList(0, k);
+    }
+
+    /**
+     * @brief Canvia la capacitat de la canonada c dins la sessió.
+     * @param c Canonada.
+     * @param capacitat Nova capacitat.
+     * Pre: ---
+     * Post: La canonada c té la capacitat indicada dins la sessió.
+     * @throws NoSuchElementException Si la canonada no pertany a la sessió.
+     * @throws IllegalArgumentException Si la capacitat és negativa.
+     */
+    public void canviarCapacitat(Canonada c, float capacitat) {
+        int e = residual.canonadaLocal(xarxa.index().id(c));
+        if (e == -1)
+            throw new NoSuchElementException("Error de configuració a l'opció: la canonada no pertany a la xarxa.");
+        if (capacitat < 0)
+            throw new IllegalArgumentException("Error de configuració a l'opció: la capacitat de la canonada no pot ser negativa.");
+        residual.canviarCapacitat(e, capacitat);
+    }
+
+    /**
+     * @brief Tanca l'aixeta del node dins la sessió.
+     * @param node Node.
+     * Pre: ---
+     * Post: El node no deixa passar aigua dins la sessió.
+     * @throws NoSuchElementException Si el node no pertany a la sessió.
+     */
+    public void tancarAixeta(Node_X node) {
+        residual.canviarAixeta(id(node), true);
+    }
+
+    /**
+     * @brief Obre l'aixeta del node dins la sessió.
+     * @param node Node.
+     * Pre: ---
+     * Post: El node deixa passar aigua dins la sessió.
+     * @throws NoSuchElementException Si el node no pertany a la sessió.
+     */
+    public void obrirAixeta(Node_X node) {
+        residual.canviarAixeta(id(node), false);
+    }
+
+    /**
+     * @brief Retorna l'identificador local del node dins el graf residual.
+     * @throws NoSuchElementException Si el node no pertany a la sessió.
+     */
+    private int id(Node_X node) {
+        int v = xarxa.index().id(node.id());
+        if (v == -1 || xarxa.index().node(v) != node || residual.nodeLocal(v) == -1)
+            throw new NoSuchElementException("Error de configuració a l'opció: el node no pertany a la xarxa.");
+        return residual.nodeLocal(v);
+    }
+}
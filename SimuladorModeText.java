@@ -19,6 +19,16 @@ public class SimuladorModeText {
 
     private Xarxa xarxa = new Xarxa(); ///< Xarxa de distribució d'aigua.
     private Stack<Pair<Boolean, Pair<String, Node_X>>> passos = new Stack<>(); ///< Pila per guardar els passos de l'operació.
+    static final TaulaComandes COMANDES = new TaulaComandes("terminal", "origen", "connexio", "connectar",
+            "abonar", "tancar", "obrir", "backtrack", "cabal", "demanda", "cicles", "arbre", "cabal minim", "exces cabal",
+            "situacio", "cabal abonat", "cabal abonats", "proximitat", "dibuix", "max-flow", "min-cut", "critics",
+            "nodes propers", "regio"); ///< Noms de les operacions, amb dispersió perfecta.
+
+    // Índexs de les operacions a COMANDES, en el mateix ordre.
+    static final int TERMINAL = 0, ORIGEN = 1, CONNEXIO = 2, CONNECTAR = 3, ABONAR = 4, TANCAR = 5, OBRIR = 6,
+            BACKTRACK = 7, CABAL = 8, DEMANDA = 9, CICLES = 10, ARBRE = 11, CABAL_MINIM = 12, EXCES_CABAL = 13,
+            SITUACIO = 14, CABAL_ABONAT = 15, CABAL_ABONATS = 16, PROXIMITAT = 17, DIBUIX = 18, MAX_FLOW = 19,
+            MIN_CUT = 20, CRITICS = 21, NODES_PROPERS = 22, REGIO = 23;
 
     /**
      * @brief Simula les operacions de construcció, modificació i consulta d'una xarxa de distribució d'aigua.
@@ -34,21 +44,23 @@ public class SimuladorModeText {
             PrintStream printFitxer = new PrintStream(fitxerResultat);
             System.setOut(printFitxer);
 
-            Scanner sc = new Scanner(fitxer);
-            sc.useLocale(Locale.US);
-            sc.useDelimiter(System.lineSeparator());
-            String aux = "";
-            String ent = "";
-            while (sc.hasNextLine()) {
-                if (!esOperacio(aux))
-                    ent = sc.nextLine();
-                else
-                    ent = aux;
-                if (!ent.trim().isEmpty()) {
-                    aux = gestio_opcio(ent, sc);
+            LectorComandes sc = new LectorComandes(fitxer);
+            int seguent = -1;
+            while (sc.hiHaLinia()) {
+                if (seguent != -1) {
+                    seguent = gestio_opcio(seguent, sc);
+                } else {
+                    String ent = sc.seguentLinia();
+                    if (!ent.trim().isEmpty()) {
+                        int comanda = COMANDES.index(ent);
+                        if (comanda != -1)
+                            seguent = gestio_opcio(comanda, sc);
+                        else
+                            System.out.println("Entrada no valida: " + ent);
+                    }
                 }
             }
-            sc.close();
+            sc.tancar();
         } catch (FileNotFoundException e) {
             System.out.println("Arxiu no trobat: " + e.getMessage());
         }
@@ -56,75 +68,75 @@ public class SimuladorModeText {
 
     /**
      * @brief Gestiona les operacions especificades en el fitxer d'entrada.
-     * @param ent Una línia del fitxer d'entrada.
-     * @param sc L'scanner des del qual es llegeixen les dades.
-     * @return La següent opció a gestionar.
-     * @pre ent és una línia del fitxer d'entrada i sc l'scanner del qual llegim.
-     * @post S'ha realitzat l'operació descrita a ent amb les dades que ha llegit l'scanner.
+     * @param comanda Índex a COMANDES de l'operació llegida.
+     * @param sc El lector des del qual es llegeixen les dades.
+     * @return Índex de la següent operació a gestionar, si ja s'ha llegit, o -1 altrament.
+     * @pre comanda és l'índex d'una operació i sc el lector del qual llegim.
+     * @post S'ha realitzat l'operació comanda amb les dades que ha llegit el lector.
      */
-    private String gestio_opcio(String ent, Scanner sc) {
-        String opcio = "";
-
-        switch (ent) {
-            case "terminal":
-                String nomTerminal = sc.next();
-                String coordenadesTerminal = sc.next();
-                float demandaTerminal = sc.nextFloat();
+    private int gestio_opcio(int comanda, LectorComandes sc) {
+        int opcio = -1;
+
+        switch (comanda) {
+            case TERMINAL:
+                String nomTerminal = sc.seguent();
+                String coordenadesTerminal = sc.seguent();
+                float demandaTerminal = sc.seguentFloat();
                 Coordenades cTerminal = partir_coordenades(coordenadesTerminal);
                 PuntTerminal terminal = new PuntTerminal(nomTerminal, cTerminal, demandaTerminal);
                 xarxa.afegir(terminal);
                 break;
 
-            case "origen":
-                String nomOrigen = sc.next();
-                String coordenadesOrigen = sc.next();
+            case ORIGEN:
+                String nomOrigen = sc.seguent();
+                String coordenadesOrigen = sc.seguent();
                 Coordenades cOrigen = partir_coordenades(coordenadesOrigen);
                 PuntOrigen origen = new PuntOrigen(nomOrigen, cOrigen);
                 xarxa.afegir(origen);
                 break;
 
-            case "connexio":
-                String nomConnexio = sc.next();
-                String coordenadesConnexio = sc.next();
+            case CONNEXIO:
+                String nomConnexio = sc.seguent();
+                String coordenadesConnexio = sc.seguent();
                 Coordenades cConnexio = partir_coordenades(coordenadesConnexio);
                 Connexio connexio = new Connexio(nomConnexio, cConnexio);
                 xarxa.afegir(connexio);
                 break;
 
-            case "connectar":
-                String nomNode1Connexio = sc.next();
-                String nomNode2Connexio = sc.next();
-                float capacitatConnexio = sc.nextFloat();
+            case CONNECTAR:
+                String nomNode1Connexio = sc.seguent();
+                String nomNode2Connexio = sc.seguent();
+                float capacitatConnexio = sc.seguentFloat();
                 Node_X node1Connexio = xarxa.node(nomNode1Connexio);
                 Node_X node2Connexio = xarxa.node(nomNode2Connexio);
                 xarxa.connectarAmbCanonada(node1Connexio, node2Connexio, capacitatConnexio, false);
                 break;
 
-            case "abonar":
-                String clientAbonar = sc.next();
-                String puntAbonar = sc.next();
+            case ABONAR:
+                String clientAbonar = sc.seguent();
+                String puntAbonar = sc.seguent();
                 PuntTerminal terminalAbonar = (PuntTerminal) xarxa.node(puntAbonar);
                 xarxa.abonar(clientAbonar, terminalAbonar);
                 break;
 
-            case "tancar":
+            case TANCAR:
                 boolean canvis_t = false;
-                String idAixetaTanca = sc.next();
+                String idAixetaTanca = sc.seguent();
                 Node_X aixetaTanca = xarxa.node(idAixetaTanca);
                 if (xarxa.tancarAixeta(aixetaTanca)) canvis_t = true;
                 passos.push(new Pair<>(canvis_t, new Pair<>("t", aixetaTanca)));
                 break;
 
-            case "obrir":
+            case OBRIR:
                 boolean canvis_o = false;
-                String idAixetaObre = sc.next();
+                String idAixetaObre = sc.seguent();
                 Node_X aixetaObre = xarxa.node(idAixetaObre);
                 if (xarxa.obrirAixeta(aixetaObre)) canvis_o = true;
                 passos.push(new Pair<>(canvis_o, new Pair<>("o", aixetaObre)));
                 break;
 
-            case "backtrack":
-                int nBacktrack = sc.nextInt();
+            case BACKTRACK:
+                int nBacktrack = sc.seguentEnter();
                 for (int i = 0; i < nBacktrack; i++) {
                     Pair<Boolean, Pair<String, Node_X>> p = passos.pop();
                     if (p.agafarPrimer()) {
@@ -136,22 +148,22 @@ public class SimuladorModeText {
                 }
                 break;
 
-            case "cabal":
-                String nomOrigenCabal = sc.next();
-                float cabal = sc.nextFloat();
+            case CABAL:
+                String nomOrigenCabal = sc.seguent();
+                float cabal = sc.seguentFloat();
                 PuntOrigen nodeCabal = (PuntOrigen) xarxa.node(nomOrigenCabal);
                 xarxa.establirCabal(nodeCabal, cabal);
                 break;
 
-            case "demanda":
-                String nomNodeDemanda = sc.next();
-                float demanda = sc.nextFloat();
+            case DEMANDA:
+                String nomNodeDemanda = sc.seguent();
+                float demanda = sc.seguentFloat();
                 PuntTerminal nodeDemanda = (PuntTerminal) xarxa.node(nomNodeDemanda);
                 xarxa.establirDemanda(nodeDemanda, demanda);
                 break;
 
-            case "cicles":
-                String nomNodeCicles = sc.next();
+            case CICLES:
+                String nomNodeCicles = sc.seguent();
                 PuntOrigen nodeCicles = (PuntOrigen) xarxa.node(nomNodeCicles);
                 boolean teCicles = GestorXarxes.teCicles(xarxa, nodeCicles);
                 if (teCicles)
@@ -160,8 +172,8 @@ public class SimuladorModeText {
                     System.out.println(nomNodeCicles + " no te cicles");
                 break;
 
-            case "arbre":
-                String nomNodeArbre = sc.next();
+            case ARBRE:
+                String nomNodeArbre = sc.seguent();
                 PuntOrigen nodeArbre = (PuntOrigen) xarxa.node(nomNodeArbre);
                 boolean esArbre = GestorXarxes.esArbre(xarxa, nodeArbre);
                 if (esArbre)
@@ -170,29 +182,20 @@ public class SimuladorModeText {
                     System.out.println(nomNodeArbre + " no es un arbre");
                 break;
 
-            case "cabal minim":
-                String nomOrigenCabalMinim = sc.next();
-                String percentatgeCabalMinim = sc.next();
-                percentatgeCabalMinim = percentatgeCabalMinim.substring(0, percentatgeCabalMinim.length() - 1);
-                float percentatge = Float.parseFloat(percentatgeCabalMinim);
+            case CABAL_MINIM:
+                String nomOrigenCabalMinim = sc.seguent();
+                String percentatgeCabalMinim = sc.seguent();
+                float percentatge = LectorComandes.valorFloat(percentatgeCabalMinim, 0, percentatgeCabalMinim.length() - 1);
                 PuntOrigen origenCabalMinim = (PuntOrigen) xarxa.node(nomOrigenCabalMinim);
                 float cabalMinim = GestorXarxes.cabalMinim(xarxa, origenCabalMinim, percentatge);
                 System.out.println("cabal minim");
                 System.out.println(cabalMinim);
                 break;
 
-            case "exces cabal":
-                String nomCanonadaExcesCabal = sc.next();
+            case EXCES_CABAL:
                 Set<Canonada> cjtCanonades = new HashSet<>();
-                Canonada canonadaExcesCabal = xarxa.canonada(nomCanonadaExcesCabal);
-                while (!esOperacio(nomCanonadaExcesCabal) && sc.hasNextLine()) {
-                    canonadaExcesCabal = xarxa.canonada(nomCanonadaExcesCabal);
-                    cjtCanonades.add(canonadaExcesCabal);
-                    nomCanonadaExcesCabal = sc.next();
-                    opcio = nomCanonadaExcesCabal;
-                }
-                if (!sc.hasNextLine()) {
-                    canonadaExcesCabal = xarxa.canonada(nomCanonadaExcesCabal);
+                while (sc.hiHaLinia() && (opcio = sc.seguentComanda(COMANDES)) == -1) {
+                    Canonada canonadaExcesCabal = xarxa.canonada(sc.seguent());
                     cjtCanonades.add(canonadaExcesCabal);
                 }
                 Set<Canonada> canonadesExces = GestorXarxes.excesCabal(xarxa, cjtCanonades);
@@ -202,25 +205,12 @@ public class SimuladorModeText {
                 }
                 break;
 
-            case "situacio":
+            case SITUACIO:
                 Map<PuntTerminal, Boolean> aiguaArriba = new HashMap<>();
-                String situacio = sc.next();
-                String[] partsSituacio;
-                while (!esOperacio(situacio) && sc.hasNextLine()) {
-                    partsSituacio = situacio.split(" ");
-                    if (partsSituacio[1].equals("SI"))
-                        aiguaArriba.put((PuntTerminal) xarxa.node(partsSituacio[0]), true);
-                    else
-                        aiguaArriba.put((PuntTerminal) xarxa.node(partsSituacio[0]), false);
-                    situacio = sc.next();
-                    opcio = situacio;
-                }
-                if (!sc.hasNextLine()) {
-                    partsSituacio = situacio.split(" ");
-                    if (partsSituacio[1].equals("SI"))
-                        aiguaArriba.put((PuntTerminal) xarxa.node(partsSituacio[0]), true);
-                    else
-                        aiguaArriba.put((PuntTerminal) xarxa.node(partsSituacio[0]), false);
+                while (sc.hiHaLinia() && (opcio = sc.seguentComanda(COMANDES)) == -1) {
+                    PuntTerminal terminalSituacio = (PuntTerminal) xarxa.node(sc.seguentParaula());
+                    aiguaArriba.put(terminalSituacio, sc.seguentParaula().equals("SI"));
+                    sc.saltarLinia();
                 }
                 Set<Node_X> aixetesTancar = GestorXarxes.aixetesTancar(xarxa, aiguaArriba);
                 System.out.println("tancar");
@@ -229,49 +219,115 @@ public class SimuladorModeText {
                 }
                 break;
 
-            case "cabal abonat":
-                String dni = sc.next();
+            case CABAL_ABONAT:
+                String dni = sc.seguent();
                 float cabalAbonat = xarxa.cabalAbonat(dni);
                 System.out.println("cabal abonat");
                 System.out.println(cabalAbonat);
                 break;
 
-            case "proximitat":
-                String entradaCoordenadesProximitat = sc.next();
-                Coordenades cProximitat = partir_coordenades(entradaCoordenadesProximitat);
-                Set<Node_X> conjunt = new HashSet<>();
-                String entradaProximitat = sc.next();
-                while (!esOperacio(entradaProximitat) && sc.hasNextLine()) {
-                    Node_X nodeProximitat = xarxa.node(entradaProximitat);
-                    conjunt.add(nodeProximitat);
-                    entradaProximitat = sc.next();
-                    opcio = entradaProximitat;
-                }
-                if (!sc.hasNextLine()) {
-                    Node_X nodeProximitat = xarxa.node(entradaProximitat);
-                    conjunt.add(nodeProximitat);
+            case CABAL_ABONATS:
+                EntradesFinsOperacio dnisAbonats = new EntradesFinsOperacio(sc);
+                System.out.println("cabal abonats");
+                xarxa.cabalAbonats(dnisAbonats, (dniAbonat, cabalDni) -> System.out.println(dniAbonat + " " + cabalDni));
+                opcio = dnisAbonats.operacio();
+                break;
+
+            case PROXIMITAT:
+                Coordenades cProximitat = partir_coordenades(sc.seguentParaula());
+                int kProximitat = sc.hiHaParaula() ? sc.seguentParaulaEnter() : 0;
+                sc.saltarLinia();
+                SeleccioPropers seleccio = new SeleccioPropers(cProximitat, kProximitat);
+                while (sc.hiHaLinia() && (opcio = sc.seguentComanda(COMANDES)) == -1) {
+                    Node_X nodeProximitat = xarxa.node(sc.seguent());
+                    seleccio.afegir(nodeProximitat);
                 }
-                List<Node_X> llistaProximitat = GestorXarxes.nodesOrdenats(cProximitat, conjunt);
+                List<Node_X> llistaProximitat = seleccio.ordenats();
                 System.out.println("proximitat");
                 for (Node_X node : llistaProximitat) {
                     System.out.println(node.id());
                 }
                 break;
 
-            case "dibuix":
-                String origenDibuix = sc.next();
+            case NODES_PROPERS:
+                Coordenades cPropers = partir_coordenades(sc.seguentParaula());
+                int kPropers = sc.seguentParaulaEnter();
+                double radiPropers = sc.hiHaParaula() ? sc.seguentParaulaDouble() : Double.POSITIVE_INFINITY;
+                sc.saltarLinia();
+                System.out.println("nodes propers");
+                for (Node_X node : xarxa.nodesPropers(cPropers, kPropers, radiPropers)) {
+                    System.out.println(node.id());
+                }
+                break;
+
+            case REGIO:
+                Coordenades cRegio = partir_coordenades(sc.seguentParaula());
+                String segonRegio = sc.seguentParaula();
+                sc.saltarLinia();
+                List<Node_X> nodesRegio;
+                List<Canonada> canonadesRegio;
+                if (segonRegio.indexOf(',') >= 0) {
+                    Coordenades nordestRegio = partir_coordenades(segonRegio);
+                    nodesRegio = xarxa.nodesDinsRectangle(cRegio, nordestRegio);
+                    canonadesRegio = xarxa.canonadesDinsRectangle(cRegio, nordestRegio);
+                } else {
+                    double radiRegio = LectorComandes.valorDouble(segonRegio, 0, segonRegio.length());
+                    nodesRegio = xarxa.nodesDinsRadi(cRegio, radiRegio);
+                    canonadesRegio = xarxa.canonadesDinsRadi(cRegio, radiRegio);
+                }
+                System.out.println("regio");
+                for (Node_X node : nodesRegio) {
+                    System.out.println(node.id());
+                }
+                System.out.println("canonades");
+                for (Canonada canonada : canonadesRegio) {
+                    System.out.println(canonada.node1().id() + "-" + canonada.node2().id());
+                }
+                break;
+
+            case DIBUIX:
+                String origenDibuix = sc.seguent();
                 PuntOrigen nodeDibuix = (PuntOrigen) xarxa.node(origenDibuix);
                 xarxa.dibuixar(nodeDibuix, false);
                 break;
 
-            case "max-flow":
-                String origenMaxflow = sc.next();
+            case MAX_FLOW:
+                String origenMaxflow = sc.seguent();
                 PuntOrigen nodeMaxflow = (PuntOrigen) xarxa.node(origenMaxflow);
                 GestorXarxes.fluxMaxim(xarxa, nodeMaxflow);
                 break;
 
-            default:
-                System.out.println("Entrada no valida: " + ent);
+            case MIN_CUT:
+                PuntOrigen nodeMincut = (PuntOrigen) xarxa.node(sc.seguentParaula());
+                boolean ambAmpliacions = sc.hiHaParaula();
+                int kMincut = ambAmpliacions ? sc.seguentParaulaEnter() : 0;
+                sc.saltarLinia();
+                SessioFluxMaxim sessio = GestorXarxes.sessioFluxMaxim(xarxa, nodeMincut);
+                System.out.println("min-cut");
+                for (Canonada canonada : sessio.tallMinim()) {
+                    System.out.println(canonada.node1().id() + "-" + canonada.node2().id() + " " + canonada.capacitat());
+                }
+                if (ambAmpliacions) {
+                    System.out.println("ampliacions");
+                    for (Pair<Canonada, Float> ampliacio : sessio.millorsAmpliacions(kMincut)) {
+                        Canonada canonada = ampliacio.agafarPrimer();
+                        System.out.println(canonada.node1().id() + "-" + canonada.node2().id() + " " + ampliacio.agafarSegon());
+                    }
+                }
+                break;
+
+            case CRITICS:
+                Node_X nodeCritics = xarxa.node(sc.seguent());
+                ElementsCritics critics = GestorXarxes.critics(xarxa, nodeCritics);
+                System.out.println("critics");
+                for (Pair<Canonada, Integer> critica : critics.canonades()) {
+                    Canonada canonada = critica.agafarPrimer();
+                    System.out.println(canonada.node1().id() + "-" + canonada.node2().id() + " " + critica.agafarSegon());
+                }
+                for (Pair<Connexio, Integer> critica : critics.connexions()) {
+                    System.out.println(critica.agafarPrimer().id() + " " + critica.agafarSegon());
+                }
+                break;
         }
         return opcio;
     }
@@ -283,37 +339,99 @@ public class SimuladorModeText {
      * @pre coordenades és una cadena de caràcters amb el format "grausLatitud:minutsLatitud:segonsLatituddireccioLatitud,grausLongitud:minutsLongitud:segonsLongituddireccioLongitud" on grausLatitud, minutsLatitud, segonsLatitud, grausLongitud, minutsLongitud i segonsLongitud són enters i direccioLatitud i direccioLongitud són caràcters 'N', 'S', 'E' o 'W'.
      * @post Retorna un objecte Coordenades amb els valors x i y.
      */
-    private Coordenades partir_coordenades(String coordenades) {
-        String[] parts = coordenades.split(",");
-        String[] latitudParts = parts[0].split(":");
-        String[] longitudParts = parts[1].split(":");
-
-        int grausLatitud = Integer.parseInt(latitudParts[0]);
-        int minutsLatitud = Integer.parseInt(latitudParts[1]);
-        float segonsLatitud = Float.parseFloat(latitudParts[2].substring(0, latitudParts[2].length() - 1)); // Remove the last character 'N'
-        char direccioLatitud = latitudParts[2].charAt(latitudParts[2].length() - 1); // Get the last character 'N'
+    static Coordenades partir_coordenades(String coordenades) {
+        int[] cursor = {0};
+        int fiLatitud = coordenades.indexOf(',');
+        int grausLatitud = llegirEnter(coordenades, cursor, ':');
+        int minutsLatitud = llegirEnter(coordenades, cursor, ':');
+        float segonsLatitud = LectorComandes.valorFloat(coordenades, cursor[0], fiLatitud - 1);
+        char direccioLatitud = coordenades.charAt(fiLatitud - 1);
 
-        int grausLongitud = Integer.parseInt(longitudParts[0]);
-        int minutsLongitud = Integer.parseInt(longitudParts[1]);
-        float segonsLongitud = Float.parseFloat(longitudParts[2].substring(0, longitudParts[2].length() - 1)); // Remove the last character 'E'
-        char direccioLongitud = longitudParts[2].charAt(longitudParts[2].length() - 1); // Get the last character 'E'
+        cursor[0] = fiLatitud + 1;
+        int fiLongitud = coordenades.indexOf(',', cursor[0]);
+        if (fiLongitud == -1)
+            fiLongitud = coordenades.length();
+        int grausLongitud = llegirEnter(coordenades, cursor, ':');
+        int minutsLongitud = llegirEnter(coordenades, cursor, ':');
+        float segonsLongitud = LectorComandes.valorFloat(coordenades, cursor[0], fiLongitud - 1);
+        char direccioLongitud = coordenades.charAt(fiLongitud - 1);
 
         return new Coordenades(grausLatitud, minutsLatitud, segonsLatitud, direccioLatitud, grausLongitud, minutsLongitud, segonsLongitud, direccioLongitud);
     }
 
     /**
-     * @brief Comprova si una cadena és una operació vàlida.
-     * @param ent Cadena a comprovar.
-     * @return Cert si la cadena és una operació vàlida, fals altrament.
-     * @pre Cert.
-     * @post Retorna cert si ent és una operació vàlida, fals altrament.
+     * @brief Llegeix un enter de s a partir de cursor[0] fins al separador.
+     * @param s Cadena.
+     * @param cursor Posició on comença l'enter; en acabar, posició següent al separador.
+     * @param separador Caràcter que acaba l'enter.
+     * @return Valor de l'enter.
+     * @pre ---
+     * @post Retorna l'enter i avança el cursor.
+     * @throws NumberFormatException Si no hi ha un enter seguit del separador.
+     */
+    private static int llegirEnter(String s, int[] cursor, char separador) {
+        int i = cursor[0];
+        boolean negatiu = i < s.length() && s.charAt(i) == '-';
+        if (negatiu || (i < s.length() && s.charAt(i) == '+'))
+            i++;
+        int inici = i;
+        int valor = 0;
+        while (i < s.length() && s.charAt(i) >= '0' && s.charAt(i) <= '9' && i - inici < 9) {
+            valor = valor * 10 + (s.charAt(i) - '0');
+            i++;
+        }
+        if (i == inici || i >= s.length() || s.charAt(i) != separador)
+            throw new NumberFormatException("For input string: \"" + s + "\"");
+        cursor[0] = i + 1;
+        return negatiu ? -valor : valor;
+    }
+
+    /**
+     * @class EntradesFinsOperacio
+     * @brief Iterador sobre les entrades que segueixen una operació, una per línia, fins a la següent operació.
+     *
+     * Llegeix les entrades a mesura que es demanen, sense guardar-les. Si la línia següent és una operació, la
+     * consumeix i en guarda l'índex, que és la següent operació a gestionar.
      */
-    private boolean esOperacio(String ent) {
-        return ent.equals("terminal") || ent.equals("origen") || ent.equals("connexio") || ent.equals("connectar") ||
-                ent.equals("abonar") || ent.equals("tancar") || ent.equals("obrir") || ent.equals("backtrack") ||
-                ent.equals("cabal") || ent.equals("demanda") || ent.equals("cicles") || ent.equals("arbre") ||
-                ent.equals("cabal minim") || ent.equals("exces cabal") || ent.equals("situacio") ||
-                ent.equals("cabal abonat") || ent.equals("proximitat") || ent.equals("dibuix") ||
-                ent.equals("max-flow");
+    private class EntradesFinsOperacio implements Iterator<String> {
+        private final LectorComandes sc; ///< Lector del fitxer d'entrada
+        private boolean mirat = false;   ///< Diu si ja s'ha mirat si la línia següent és una entrada
+        private boolean hiHa = false;    ///< Diu si la línia següent és una entrada (vàlid si mirat)
+        private int operacio = -1;       ///< Índex de l'operació que segueix les entrades, o -1
+
+        /**
+         * @brief Constructor
+         * @pre ---
+         * @post Crea l'iterador sense llegir res
+         */
+        EntradesFinsOperacio(LectorComandes sc) {
+            this.sc = sc;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!mirat) {
+                mirat = true;
+                hiHa = sc.hiHaLinia() && (operacio = sc.seguentComanda(COMANDES)) == -1;
+            }
+            return hiHa;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            mirat = false;
+            return sc.seguent();
+        }
+
+        /**
+         * @brief Retorna la següent operació a gestionar
+         * @pre No queden entrades
+         * @post Retorna l'índex de l'operació que ha acabat les entrades, o -1 si s'ha acabat el fitxer
+         */
+        int operacio() {
+            return operacio;
+        }
     }
 }
\ No newline at end of file
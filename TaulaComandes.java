@@ -0,0 +1,109 @@
+//Pol Martorell Herrera
+/**
+ * @file TaulaComandes.java
+ * @brief Taula de dispersió perfecta per reconèixer els noms de les operacions del fitxer d'entrada
+ */
+
+/**
+ * @class TaulaComandes
+ * @brief Conjunt fix de cadenes amb una funció de dispersió sense col·lisions, que retorna l'índex de cada comanda.
+ *
+ * La posició d'una cadena és (hashCode * multiplicador) >>> (32 - bits). En construir la taula es busca un
+ * multiplicador que col·loqui cada comanda en una posició diferent; així una consulta fa una multiplicació,
+ * un desplaçament i com a molt una comparació de cadenes, i el hashCode de la cadena queda guardat a la
+ * mateixa cadena. També es pot consultar un tros de text sense crear-ne cap cadena: el seu hashCode es calcula
+ * com el de String.
+ */
+class TaulaComandes {
+
+    private final String[] taula;  ///< Comanda de cada posició (null si està buida)
+    private final int[] indexs;    ///< Índex a comandes de la comanda de cada posició
+    private final int multiplicador; ///< Multiplicador de la funció de dispersió
+    private final int bits;        ///< Logaritme en base 2 de la mida de la taula
+
+    /**
+     * @brief Constructor
+     * @pre Les comandes són diferents
+     * @post Crea una taula sense col·lisions amb les comandes donades; l'índex de cada comanda és la seva posició
+     * @param comandes Noms de les comandes
+     */
+    TaulaComandes(String... comandes) {
+        int b = 1;
+        while ((1 << b) < 2 * comandes.length)
+            b++;
+        int m = 0x9E3779B1;
+        String[] t = omplir(comandes, m, b);
+        for (int intent = 1; t == null; intent++) {
+            // Si cap multiplicador no funciona amb aquesta mida, es duplica la taula
+            if (intent % (1 << 12) == 0)
+                b++;
+            m = 0x9E3779B1 + 2 * intent;
+            t = omplir(comandes, m, b);
+        }
+        taula = t;
+        multiplicador = m;
+        bits = b;
+        indexs = new int[t.length];
+        for (int i = 0; i < comandes.length; i++)
+            indexs[posicio(comandes[i].hashCode(), m, b)] = i;
+    }
+
+    /**
+     * @brief Retorna l'índex de la comanda s
+     * @pre ---
+     * @post Retorna la posició de s a les comandes donades al constructor, o -1 si no n'és cap
+     * @param s Cadena a buscar
+     * @return int Índex de la comanda
+     */
+    int index(String s) {
+        int p = posicio(s.hashCode(), multiplicador, bits);
+        String comanda = taula[p];
+        return comanda != null && comanda.equals(s) ? indexs[p] : -1;
+    }
+
+    /**
+     * @brief Retorna l'índex de la comanda formada pels caràcters de s entre inici i fi
+     * @pre 0 <= inici <= fi <= s.length()
+     * @post Retorna la posició de la comanda a les comandes donades al constructor, o -1 si no n'és cap
+     * @param s Text
+     * @param inici Posició del primer caràcter
+     * @param fi Posició següent a l'últim caràcter
+     * @return int Índex de la comanda
+     */
+    int index(CharSequence s, int inici, int fi) {
+        int h = 0;
+        for (int i = inici; i < fi; i++)
+            h = 31 * h + s.charAt(i);
+        int p = posicio(h, multiplicador, bits);
+        String comanda = taula[p];
+        if (comanda == null || comanda.length() != fi - inici)
+            return -1;
+        for (int i = 0; i < comanda.length(); i++) {
+            if (comanda.charAt(i) != s.charAt(inici + i))
+                return -1;
+        }
+        return indexs[p];
+    }
+
+    /**
+     * @brief Col·loca les comandes amb el multiplicador m en una taula de 2^b posicions
+     * @return String[] La taula, o null si hi ha alguna col·lisió
+     */
+    private static String[] omplir(String[] comandes, int m, int b) {
+        String[] t = new String[1 << b];
+        for (String comanda : comandes) {
+            int p = posicio(comanda.hashCode(), m, b);
+            if (t[p] != null)
+                return null;
+            t[p] = comanda;
+        }
+        return t;
+    }
+
+    /**
+     * @brief Retorna la posició del hashCode h en una taula de 2^b posicions amb el multiplicador m
+     */
+    private static int posicio(int h, int m, int b) {
+        return (h * m) >>> (32 - b);
+    }
+}
@@ -9,6 +9,7 @@ import java.util.*;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 import java.util.List;
 import org.graphstream.graph.*;
 import org.graphstream.graph.implementations.*;
@@ -21,6 +22,22 @@ import org.graphstream.ui.view.Viewer;
 public class Xarxa {
 
     private Graph grafXarxa; ///< Graf que representa la xarxa
+    private IndexXarxa index; ///< Índex d'adjacència CSR de la xarxa
+    private List<Map<Node_X, Canonada>> superiors; ///< Per a cada node (identificador dens), nodes superiors i canonada que els connecta
+    private List<Map<Node_X, Canonada>> inferiors; ///< Per a cada node (identificador dens), nodes inferiors i canonada que els connecta
+    private Map<String, List<PuntTerminal>> terminalsAbonats; ///< Punts terminals als quals està abonat cada client
+    private ComponentsXarxa components; ///< Components connexes de la xarxa
+    private ComponentsObertes componentsObertes; ///< Components connexes dels nodes oberts, amb la seva demanda
+    private DetectorCicles detectorCicles; ///< Ordre topològic dinàmic per detectar cicles en afegir canonades
+    private ArbresDemanda arbresDemanda; ///< Sumes de demanda per subarbres de les components en forma d'arbre
+    private IndexEspacial indexEspacial; ///< Graella espacial dels nodes per a les consultes de proximitat
+    private Recorregut recorregut; ///< Recorreguts reutilitzables sobre l'índex
+    private long versio = 0; ///< Versió de l'estat de la xarxa; augmenta a cada modificació que afecta els cabals
+    private long versioTopologia = 0; ///< Versió dels nodes, les canonades i les aixetes; no canvia amb cabals ni demandes
+    private SolucioCabal solucio = null; ///< Última solució de demandes i cabals calculada
+    private SolucioCabal solucioDemandaPlena = null; ///< Última solució calculada suposant satisfeta tota la demanda
+    private long encertsCache = 0; ///< Consultes de cabal servides des de la solució guardada
+    private long falladesCache = 0; ///< Consultes de cabal que han requerit recalcular la solució
 
     /**
      * @brief Constructor per defecte
@@ -29,6 +46,16 @@ public class Xarxa {
      */
     public Xarxa() {
         grafXarxa = new SingleGraph("Xarxa");
+        index = new IndexXarxa();
+        components = new ComponentsXarxa();
+        componentsObertes = new ComponentsObertes(index);
+        detectorCicles = new DetectorCicles(index, components);
+        recorregut = new Recorregut(index);
+        arbresDemanda = new ArbresDemanda(index, recorregut);
+        indexEspacial = new IndexEspacial(index);
+        superiors = new ArrayList<>();
+        inferiors = new ArrayList<>();
+        terminalsAbonats = new HashMap<>();
     }
 
     /**
@@ -39,6 +66,16 @@ public class Xarxa {
      */
     public Xarxa(Xarxa x) {
         this.grafXarxa = new SingleGraph("Copia xarxa");
+        this.index = new IndexXarxa();
+        this.components = new ComponentsXarxa();
+        this.componentsObertes = new ComponentsObertes(index);
+        this.detectorCicles = new DetectorCicles(index, components);
+        this.recorregut = new Recorregut(index);
+        this.arbresDemanda = new ArbresDemanda(index, recorregut);
+        this.indexEspacial = new IndexEspacial(index);
+        this.superiors = new ArrayList<>();
+        this.inferiors = new ArrayList<>();
+        this.terminalsAbonats = new HashMap<>();
         for (Node n : x.grafXarxa) {
             Node nou_node = this.grafXarxa.addNode(n.getId());
             Object n_x = n.getAttribute("node");
@@ -56,14 +93,16 @@ public class Xarxa {
             }
             nou_node.setAttribute("ui.label", n.getAttribute("ui.label"));
             nou_node.setAttribute("ui.style", n.getAttribute("ui.style"));
+            registrarNode((Node_X) nou_node.getAttribute("node"));
         }
 
-        for (Edge e : x.obtenirArestes()) {
-            Node node1 = e.getNode0();
-            Node node2 = e.getNode1();
-            Canonada c = (Canonada) e.getAttribute("canonada");
+        for (int i = 0; i < x.index.nCanonades(); i++) {
+            Node node1 = grafXarxa.getNode(x.index.node(x.index.origen(i)).id());
+            Node node2 = grafXarxa.getNode(x.index.node(x.index.desti(i)).id());
+            Canonada c = x.index.canonada(i);
             Edge aresta = grafXarxa.addEdge(node1.getId() + "-" + node2.getId(), node1.getId(), node2.getId(), true);
             aresta.setAttribute("canonada", c);
+            registrarCanonada(index.id(node1.getId()), index.id(node2.getId()), c);
             aresta.setAttribute("ui.style", "size: 3px; text-size: 18px;");
             aresta.setAttribute("ui.label", ((Canonada) aresta.getAttribute("canonada")).cabal() + "/" + ((Canonada) aresta.getAttribute("canonada")).capacitat());
         }
@@ -117,21 +156,10 @@ public class Xarxa {
      * @return Iterator<Canonada> Iterador de les canonades que surten del node
      */
     public Iterator<Canonada> sortides(Node_X node) {
-        List<Canonada> canonades = new ArrayList<>();
-        Node n = grafXarxa.getNode(node.id());
-        String aux;
-
-        if (n != null) {
-            for (Edge e : n) {
-                aux = e.getSourceNode().getId();
-                if (aux.equals(node.id())) {
-                    Object can = e.getAttribute("canonada");
-                    if (can instanceof Canonada)
-                        canonades.add((Canonada) can);
-                }
-            }
-        }
-        return canonades.iterator();
+        int v = index.id(node.id());
+        if (v == -1)
+            return Collections.emptyIterator();
+        return new IteradorCanonades(index.vectorSortides(), index.iniciSortides(v), index.fiSortides(v));
     }
 
     /**
@@ -142,21 +170,10 @@ public class Xarxa {
      * @return Iterator<Canonada> Iterador de les canonades que entren al node
      */
     public Iterator<Canonada> entrades(Node_X node) {
-        List<Canonada> canonades = new ArrayList<>();
-        Node n = grafXarxa.getNode(node.id());
-        String aux;
-
-        if (n != null) {
-            for (Edge e : n) {
-                aux = e.getTargetNode().getId();
-                if (aux.equals(node.id())) {
-                    Object can = e.getAttribute("canonada");
-                    if (can instanceof Canonada)
-                        canonades.add((Canonada) can);
-                }
-            }
-        }
-        return canonades.iterator();
+        int v = index.id(node.id());
+        if (v == -1)
+            return Collections.emptyIterator();
+        return new IteradorCanonades(index.vectorEntrades(), index.iniciEntrades(v), index.fiEntrades(v));
     }
 
     /**
@@ -177,6 +194,7 @@ public class Xarxa {
 
         String coord_dibuix = String.format("%.6f, %.6f", nodeOrigen.coordenades().longitud(), nodeOrigen.coordenades().latitud());
         n.setAttribute("ui.label", nodeOrigen.id() + " (" + coord_dibuix + ")");
+        registrarNode(nodeOrigen);
     }
 
     /**
@@ -198,6 +216,7 @@ public class Xarxa {
         Node n = grafXarxa.addNode(nodeTerminal.id());
         n.setAttribute("node", nodeTerminal);
         n.setAttribute("ui.style", "fill-color: orange; size: 25px; text-size: 10px; text-alignment: center; text-offset: 0, 15px;");
+        registrarNode(nodeTerminal);
     }
 
     /**
@@ -218,6 +237,7 @@ public class Xarxa {
 
         String coord_dibuix = String.format("%.6f, %.6f", nodeConnexio.coordenades().longitud(), nodeConnexio.coordenades().latitud());
         n.setAttribute("ui.label", nodeConnexio.id() + " (" + coord_dibuix + ")");
+        registrarNode(nodeConnexio);
     }
 
     /**
@@ -290,6 +310,7 @@ public class Xarxa {
                 newEdge.setAttribute("ui.label", e.getAttribute("ui.label"));
             }
 
+            substituirNode(index.id(id), co);
             node2 = co;
         }
 
@@ -335,6 +356,7 @@ public class Xarxa {
                 newEdge.setAttribute("ui.label", e.getAttribute("ui.label"));
             }
 
+            substituirNode(index.id(id), co);
             node1 = co;
         }
 
@@ -342,6 +364,9 @@ public class Xarxa {
         Edge e = grafXarxa.addEdge(node1.id() + "-" + node2.id(), node1.id(), node2.id(), true);
         e.setAttribute("canonada", can);
         e.setAttribute("ui.style", "size: 2px; text-size: 12px;");
+        registrarCanonada(index.id(node1.id()), index.id(node2.id()), can);
+        versio++;
+        versioTopologia++;
     }
 
     /**
@@ -361,7 +386,10 @@ public class Xarxa {
             Object n_x = n.getAttribute("node");
             if (n_x instanceof PuntTerminal) {
                 PuntTerminal pt = (PuntTerminal) n_x;
-                if (!pt.es_abonat(idClient)) pt.afegir_abonat(idClient);
+                if (!pt.es_abonat(idClient)) {
+                    pt.afegir_abonat(idClient);
+                    terminalsAbonats.computeIfAbsent(idClient, k -> new ArrayList<>()).add(pt);
+                }
             }
         }
     }
@@ -374,16 +402,26 @@ public class Xarxa {
      * @return float Cabal actual al punt d'abastament del client
      */
     public float cabalAbonat(String idClient) {
-        for(Node n : grafXarxa) {
-            Object n_x = n.getAttribute("node");
-            if (n_x instanceof PuntTerminal) {
-                PuntTerminal pt = (PuntTerminal) n_x;
-                if (pt.es_abonat(idClient)) {
-                    return cabal(pt);
-                }
-            }
+        List<PuntTerminal> terminals = terminalsAbonats.get(idClient);
+        if (terminals == null)
+            return 0;
+        return cabal(terminals.get(0));
+    }
+
+    /**
+     * @brief Recorre el cabal actual al punt d'abastament de cada client de idsClients
+     * @pre ---
+     * @post Crida accio amb cada client, en l'ordre de idsClients i a mesura que es llegeix, i el cabal actual al seu
+     * punt d'abastament (0 si no és abonat a cap terminal). La xarxa es resol una sola vegada per a tots els clients
+     * i no es guarda cap client, de manera que la memòria no creix amb el nombre de clients.
+     * @param idsClients Identificadors dels clients
+     * @param accio Acció a fer amb cada client i el seu cabal
+     */
+    public void cabalAbonats(Iterator<String> idsClients, BiConsumer<String, Float> accio) {
+        while (idsClients.hasNext()) {
+            String idClient = idsClients.next();
+            accio.accept(idClient, cabalAbonat(idClient));
         }
-        return 0;
     }
 
     /**
@@ -401,7 +439,12 @@ public class Xarxa {
         }
         else {
             if (!node.aixetaOberta()) {
+                int v = index.id(node.id());
+                retirarAportacio(v, index.node(v));
                 node.obrirAixeta();
+                afegirAportacio(v, index.node(v));
+                versio++;
+                versioTopologia++;
                 obert = true;
             }
         }
@@ -423,7 +466,12 @@ public class Xarxa {
         }
         else {
             if (node.aixetaOberta()) {
+                int v = index.id(node.id());
+                retirarAportacio(v, index.node(v));
                 node.tancarAixeta();
+                afegirAportacio(v, index.node(v));
+                versio++;
+                versioTopologia++;
                 tancat = true;
             }
         }
@@ -452,6 +500,7 @@ public class Xarxa {
             if (n_x instanceof PuntOrigen) {
                 PuntOrigen po = (PuntOrigen) n_x;
                 po.establirCabal(cabal);
+                versio++;
             }
         }
     }
@@ -477,7 +526,11 @@ public class Xarxa {
             Object n_x = n.getAttribute("node");
             if (n_x instanceof PuntTerminal) {
                 PuntTerminal pt = (PuntTerminal) n_x;
+                int v = index.id(pt.id());
+                retirarAportacio(v, pt);
                 pt.establirDemandaActual(demanda);
+                afegirAportacio(v, pt);
+                versio++;
             }
         }
     }
@@ -485,7 +538,7 @@ public class Xarxa {
     /**
      * @brief Retorna el cabal teòric al node segons la configuració actual de la xarxa
      * @pre node pertany a la xarxa
-     * @post Retorna el cabal teòric al node segons la configuració actual de la xarxa
+     * @post Retorna el cabal teòric al node segons la configuració actual de la xarxa, i el cabal de cada canonada queda actualitzat
      * @param node_x Node del qual es vol obtenir el cabal
      * @return float Cabal teòric al node
      * @throws NoSuchElementException Si node no pertany a la xarxa
@@ -494,29 +547,7 @@ public class Xarxa {
         if(grafXarxa.getNode(node_x.id()) == null) {
             throw new NoSuchElementException("El node no pertany a la xarxa");
         }
-        float cabal = 0;
-        Map<Canonada, Float> cabals_canonades = new HashMap<>();
-        Map<Node_X, Float> cabals_nodes = new HashMap<>();
-        Queue<Node_X> cua = new LinkedList<>();
-        Set<Node_X> visitats = new HashSet<>();
-        for(Node_X n : nodes()) {
-            if(n instanceof PuntOrigen) {
-                cua.add(n);
-                visitats.add(n);
-            }
-        }
-        while(!cua.isEmpty()) {
-            Node_X n = cua.poll();
-            if(n instanceof PuntOrigen) {
-                cabals_nodes.put(n, ((PuntOrigen) n).cabal());
-            }
-            if(cabals_nodes.containsKey(n))
-                repartirCabal(n, cabals_nodes, cabals_canonades, cua, visitats);
-            else
-                cua.add(n);
-        }
-        cabal = cabals_nodes.getOrDefault(node_x, 0f);
-        return cabal;
+        return solucio(false).cabals_nodes.getOrDefault(node_x, 0f);
     }
 
     /**
@@ -533,28 +564,256 @@ public class Xarxa {
         if(grafXarxa.getNode(node.id()) == null) {
             throw new NoSuchElementException("El node no pertany a la xarxa");
         }
-        float demanda = 0;
-        Queue<Node_X> cua = new LinkedList<>();
-        Set<Node_X> visitats = new HashSet<>();
-        for(Node_X n : nodes()) {
-            if(n instanceof PuntTerminal) {
-                cua.add(n);
-                visitats.add(n);
-            }
-        }
-        while(!cua.isEmpty()) {
-            Node_X n = cua.poll();
-            if(n instanceof PuntTerminal) {
-                demandes_nodes.put(n, ((PuntTerminal) n).demanda_actual());
-            }
-            if(demandes_nodes.containsKey(n)) {
-                propagarDemanda(n, demandes_nodes, demandes_canonades, cua, visitats);
-            }
-            else
-                cua.add(n);
-        }
-        demanda = demandes_nodes.get(node);
-        return demanda;
+        SolucioCabal s = solucio(false);
+        demandes_nodes.putAll(s.demandes_nodes);
+        demandes_canonades.putAll(s.demandes_canonades);
+        return demandes_nodes.getOrDefault(node, 0f);
+    }
+
+    /**
+     * @brief Retorna el cabal de cada canonada si es volgués satisfer tota la demanda dels nodes terminals
+     * @pre ---
+     * @post Retorna el cabal de cada canonada quan la demanda es reparteix entre les canonades d'entrada dels superiors oberts
+     * proporcionalment a la seva capacitat, sense limitar-la, i el cabal dels orígens es reparteix proporcionalment a la demanda
+     * @return Map<Canonada, Float> Cabal de cada canonada de la xarxa (no modificable)
+     */
+    public Map<Canonada, Float> cabalsDemandaPlena() {
+        return Collections.unmodifiableMap(solucio(true).cabals_canonades);
+    }
+
+    /**
+     * @brief Diu si la component connexa del node té algun cicle dirigit
+     * @pre ---
+     * @post Retorna cert si la component connexa del node té cicles, en temps constant
+     * @param node Node de la xarxa
+     * @return boolean Cert si la component connexa del node té cicles
+     * @throws NoSuchElementException Si el node no pertany a la xarxa
+     */
+    public boolean teCicles(Node_X node) {
+        return detectorCicles.teCicles(idNode(node));
+    }
+
+    /**
+     * @brief Diu si la component connexa del node és un arbre
+     * @pre ---
+     * @post Retorna cert si la component connexa del node no té cicles i cap node hi rep aigua per més d'una canonada, en temps constant
+     * @param node Node de la xarxa
+     * @return boolean Cert si la component connexa del node és un arbre
+     * @throws NoSuchElementException Si el node no pertany a la xarxa
+     */
+    public boolean esArbre(Node_X node) {
+        return components.esArbre(idNode(node));
+    }
+
+    /**
+     * @brief Retorna la demanda dels punts terminals oberts que pengen del node
+     * @pre ---
+     * @post Retorna la suma de la demanda actual dels punts terminals oberts accessibles des del node seguint el sentit
+     * de les canonades (incloent-hi el mateix node), sense tenir en compte les aixetes intermèdies ni les capacitats; si
+     * la component és un arbre costa O(log n)
+     * @param node Node de la xarxa
+     * @return float Demanda del subarbre del node
+     * @throws NoSuchElementException Si el node no pertany a la xarxa
+     */
+    public float demandaSubarbre(Node_X node) {
+        int v = idNode(node);
+        if (components.esArbre(v))
+            return (float) arbresDemanda.demanda(v);
+        double[] demanda = {0};
+        recorregut().amplada(v, Recorregut.SORTIDES, w -> true, w -> {
+            Node_X n = index.node(w);
+            if (n instanceof PuntTerminal && n.aixetaOberta())
+                demanda[0] += ((PuntTerminal) n).demanda_actual();
+        });
+        return (float) demanda[0];
+    }
+
+    /**
+     * @brief Retorna la demanda dels punts terminals on pot arribar aigua des del node
+     * @pre ---
+     * @post Retorna la suma de la demanda actual dels punts terminals oberts accessibles des del node passant només per
+     * nodes oberts (el mateix node pot ser tancat), sense tenir en compte el sentit ni la capacitat de les canonades;
+     * es manté a cada canvi i la consulta costa el grau del node
+     * @param node Node de la xarxa
+     * @return float Demanda accessible des del node
+     * @throws NoSuchElementException Si el node no pertany a la xarxa
+     */
+    public float demandaAccessible(Node_X node) {
+        return (float) componentsObertes.demandaAccessible(idNode(node));
+    }
+
+    /**
+     * @brief Retorna l'identificador de la component connexa del node
+     * @pre ---
+     * @post Retorna un enter que és igual per a dos nodes si i només si són a la mateixa component connexa; pot
+     * canviar quan s'afegeixen canonades
+     * @param node Node de la xarxa
+     * @return int Identificador de la component connexa del node
+     * @throws NoSuchElementException Si el node no pertany a la xarxa
+     */
+    public int component(Node_X node) {
+        return components.component(idNode(node));
+    }
+
+    /**
+     * @brief Retorna els punts d'origen de la component connexa del node
+     * @pre ---
+     * @post Retorna una vista no modificable dels punts d'origen de la component connexa del node
+     * @param node Node de la xarxa
+     * @return List<PuntOrigen> Punts d'origen de la component connexa
+     * @throws NoSuchElementException Si el node no pertany a la xarxa
+     */
+    public List<PuntOrigen> origensComponent(Node_X node) {
+        return components.origens(idNode(node));
+    }
+
+    /**
+     * @brief Retorna els punts terminals de la component connexa del node
+     * @pre ---
+     * @post Retorna una vista no modificable dels punts terminals de la component connexa del node
+     * @param node Node de la xarxa
+     * @return List<PuntTerminal> Punts terminals de la component connexa
+     * @throws NoSuchElementException Si el node no pertany a la xarxa
+     */
+    public List<PuntTerminal> terminalsComponent(Node_X node) {
+        return components.terminals(idNode(node));
+    }
+
+    /**
+     * @brief Retorna el nombre de nodes de la component connexa del node
+     * @pre ---
+     * @post Retorna el nombre de nodes de la component connexa del node
+     * @param node Node de la xarxa
+     * @return int Nombre de nodes de la component connexa
+     * @throws NoSuchElementException Si el node no pertany a la xarxa
+     */
+    public int nodesComponent(Node_X node) {
+        return components.mida(idNode(node));
+    }
+
+    /**
+     * @brief Retorna els k nodes de la xarxa més propers a les coordenades c
+     * @pre k > 0
+     * @post Retorna com a molt k nodes ordenats per distància a c i, en cas d'empat, per id, sense ordenar tots els nodes
+     * @param c Coordenades de referència
+     * @param k Nombre màxim de nodes
+     * @return List<Node_X> Nodes més propers a c
+     */
+    public List<Node_X> nodesPropers(Coordenades c, int k) {
+        return nodesPropers(c, k, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @brief Retorna els k nodes de la xarxa més propers a les coordenades c que són dins d'un radi
+     * @pre radi >= 0
+     * @post Retorna com a molt k nodes a distància com a molt radi de c, ordenats per distància i, en cas d'empat, per
+     * id; si k <= 0 retorna tots els nodes dins del radi
+     * @param c Coordenades de referència
+     * @param k Nombre màxim de nodes
+     * @param radi Distància màxima en km
+     * @return List<Node_X> Nodes més propers a c
+     */
+    public List<Node_X> nodesPropers(Coordenades c, int k, double radi) {
+        return indexEspacial.propers(c, k, radi);
+    }
+
+    /**
+     * @brief Retorna els nodes de la xarxa a distància com a molt radi de les coordenades c
+     * @pre ---
+     * @post Retorna els nodes dins del cercle, en l'ordre en què es van afegir a la xarxa
+     * @param c Centre del cercle
+     * @param radi Radi en km
+     * @return List<Node_X> Nodes dins del cercle
+     * @throws IllegalArgumentException Si el radi és negatiu
+     */
+    public List<Node_X> nodesDinsRadi(Coordenades c, double radi) {
+        comprovarRadi(radi);
+        return nodes(indexEspacial.dinsRadi(c, radi));
+    }
+
+    /**
+     * @brief Retorna les canonades de la xarxa amb els dos extrems a distància com a molt radi de les coordenades c
+     * @pre ---
+     * @post Retorna les canonades amb els dos extrems dins del cercle
+     * @param c Centre del cercle
+     * @param radi Radi en km
+     * @return List<Canonada> Canonades dins del cercle
+     * @throws IllegalArgumentException Si el radi és negatiu
+     */
+    public List<Canonada> canonadesDinsRadi(Coordenades c, double radi) {
+        comprovarRadi(radi);
+        return canonadesEntre(indexEspacial.dinsRadi(c, radi));
+    }
+
+    /**
+     * @brief Retorna els nodes de la xarxa dins del rectangle de vèrtexs sudoest i nordest
+     * @pre ---
+     * @post Retorna els nodes amb latitud entre les dels vèrtexs i longitud entre la de sudoest i la de nordest
+     * anant cap a l'est (el rectangle travessa l'antimeridià si sudoest és més a l'est que nordest), en l'ordre en
+     * què es van afegir a la xarxa
+     * @param sudoest Vèrtex sud-oest del rectangle
+     * @param nordest Vèrtex nord-est del rectangle
+     * @return List<Node_X> Nodes dins del rectangle
+     * @throws IllegalArgumentException Si sudoest és més al nord que nordest
+     */
+    public List<Node_X> nodesDinsRectangle(Coordenades sudoest, Coordenades nordest) {
+        comprovarRectangle(sudoest, nordest);
+        return nodes(indexEspacial.dinsRectangle(sudoest.latitud(), nordest.latitud(), sudoest.longitud(), nordest.longitud()));
+    }
+
+    /**
+     * @brief Retorna les canonades de la xarxa amb els dos extrems dins del rectangle de vèrtexs sudoest i nordest
+     * @pre ---
+     * @post Retorna les canonades amb els dos extrems dins del rectangle, definit com a nodesDinsRectangle
+     * @param sudoest Vèrtex sud-oest del rectangle
+     * @param nordest Vèrtex nord-est del rectangle
+     * @return List<Canonada> Canonades dins del rectangle
+     * @throws IllegalArgumentException Si sudoest és més al nord que nordest
+     */
+    public List<Canonada> canonadesDinsRectangle(Coordenades sudoest, Coordenades nordest) {
+        comprovarRectangle(sudoest, nordest);
+        return canonadesEntre(indexEspacial.dinsRectangle(sudoest.latitud(), nordest.latitud(), sudoest.longitud(), nordest.longitud()));
+    }
+
+    /**
+     * @brief Retorna la versió de l'estat de la xarxa
+     * @pre ---
+     * @post Retorna un nombre que augmenta cada vegada que es modifica la topologia, una aixeta, un cabal o una demanda
+     * @return long Versió de l'estat de la xarxa
+     */
+    public long versio() {
+        return versio;
+    }
+
+    /**
+     * @brief Retorna la versió de la topologia i de les aixetes de la xarxa
+     * @pre ---
+     * @post Retorna un nombre que augmenta cada vegada que s'afegeix un node o una canonada o s'obre o es tanca una
+     * aixeta, però no quan canvia un cabal o una demanda
+     * @return long Versió de la topologia i de les aixetes
+     */
+    public long versioTopologia() {
+        return versioTopologia;
+    }
+
+    /**
+     * @brief Retorna el nombre de consultes de cabal servides des de la solució guardada
+     * @pre ---
+     * @post Retorna el nombre d'encerts de la cache de solucions
+     * @return long Nombre d'encerts
+     */
+    public long encertsCache() {
+        return encertsCache;
+    }
+
+    /**
+     * @brief Retorna el nombre de consultes de cabal que han requerit recalcular la solució
+     * @pre ---
+     * @post Retorna el nombre de fallades de la cache de solucions
+     * @return long Nombre de fallades
+     */
+    public long falladesCache() {
+        return falladesCache;
     }
 
     /**
@@ -566,6 +825,76 @@ public class Xarxa {
      * @throws NoSuchElementException Si nodeOrigen no pertany a la xarxa
      */
     public void dibuixar(PuntOrigen nodeOrigen, boolean max_flow) {
+        dibuixar(nodeOrigen, max_flow, null);
+    }
+
+    /**
+     * @brief Dibuixa el flux màxim de la component de la xarxa que conté nodeOrigen
+     * @pre nodeOrigen pertany a la xarxa
+     * @post Dibuixa la component de nodeOrigen etiquetant cada canonada amb el seu flux a fluxos i la seva capacitat
+     * @param nodeOrigen PuntOrigen des del qual es vol iniciar el dibuix
+     * @param fluxos Flux de cada canonada segons el flux màxim calculat
+     * @throws NoSuchElementException Si nodeOrigen no pertany a la xarxa
+     */
+    public void dibuixarFluxMaxim(PuntOrigen nodeOrigen, Map<Canonada, Float> fluxos) {
+        dibuixar(nodeOrigen, true, fluxos);
+    }
+
+    /**
+     * @brief Retorna l'índex d'adjacència de la xarxa
+     * @pre ---
+     * @post Retorna l'índex d'adjacència de la xarxa, per als algorismes que treballen sobre identificadors densos
+     * @return IndexXarxa Índex d'adjacència de la xarxa
+     */
+    IndexXarxa index() {
+        return index;
+    }
+
+    /**
+     * @brief Retorna els identificadors densos dels nodes de la component connexa del node
+     * @pre ---
+     * @post Retorna un vector nou amb els nodes de la component connexa del node, en temps proporcional a la seva mida
+     * @param node Node de la xarxa
+     * @return int[] Identificadors densos dels nodes de la component
+     * @throws NoSuchElementException Si el node no pertany a la xarxa
+     */
+    int[] idsNodesComponent(Node_X node) {
+        return components.nodes(idNode(node));
+    }
+
+    /**
+     * @brief Retorna els identificadors densos de les canonades de la component connexa del node
+     * @pre ---
+     * @post Retorna un vector nou amb les canonades de la component connexa del node, en temps proporcional al seu
+     * nombre
+     * @param node Node de la xarxa
+     * @return int[] Identificadors densos de les canonades de la component
+     * @throws NoSuchElementException Si el node no pertany a la xarxa
+     */
+    int[] idsCanonadesComponent(Node_X node) {
+        return components.canonades(idNode(node));
+    }
+
+    /**
+     * @brief Retorna el nucli de recorreguts reutilitzable de la xarxa
+     * @pre ---
+     * @post Retorna el recorregut sobre l'índex de la xarxa que comparteixen tots els algorismes
+     * @return Recorregut Recorregut de la xarxa
+     */
+    Recorregut recorregut() {
+        return recorregut;
+    }
+
+    /**
+     * @brief Dibuixa la xarxa de distribució d'aigua
+     * @pre nodeOrigen pertany a la xarxa
+     * @post Dibuixa la xarxa de distribució d'aigua
+     * @param nodeOrigen PuntOrigen des del qual es vol iniciar el dibuix
+     * @param max_flow Boolean que indica si s'ha de dibuixar el flux màxim
+     * @param fluxos Flux de cada canonada a mostrar en el dibuix del flux màxim, o null per mostrar el cabal de les canonades
+     * @throws NoSuchElementException Si nodeOrigen no pertany a la xarxa
+     */
+    private void dibuixar(PuntOrigen nodeOrigen, boolean max_flow, Map<Canonada, Float> fluxos) {
         if (grafXarxa.getNode(nodeOrigen.id()) == null) {
             throw new NoSuchElementException("Error de configuració a l'opció: el node origen no pertany a la xarxa");
         }
@@ -573,15 +902,13 @@ public class Xarxa {
             String css = "edge { arrow-shape: arrow; arrow-size: 10px, 3px; }" + "node.X { fill-color: red; size: 25px; stroke-mode: plain; stroke-color: black; stroke-width: 2px; shape: cross; }";
             grafXarxa.setAttribute("ui.stylesheet", css);
 
-            Node n = grafXarxa.getNode(nodeOrigen.id());
-            Set<Node> visitats = new HashSet<>();
-            calculConnex(n, visitats);
+            int component = components.component(index.id(nodeOrigen.id()));
             System.setProperty("org.graphstream.ui", "swing");
 
             if(!max_flow) {
                 for (Node node : grafXarxa) {
                     Object n_x = node.getAttribute("node");
-                    if (visitats.contains(node)) {
+                    if (components.component(index.id(node.getId())) == component) {
                         if (n_x instanceof Node_X) {
                             Node_X n_dibuix = (Node_X) n_x;
                             Coordenades coord = n_dibuix.coordenades();
@@ -610,7 +937,7 @@ public class Xarxa {
             else {
                 for (Node node : grafXarxa) {
                     Object n_x = node.getAttribute("node");
-                    if (visitats.contains(node)) {
+                    if (components.component(index.id(node.getId())) == component) {
                         if (n_x instanceof Node_X) {
                             Node_X n_dibuix = (Node_X) n_x;
                             Coordenades coord = n_dibuix.coordenades();
@@ -633,7 +960,8 @@ public class Xarxa {
 
                     for(Edge e : node){
                         Canonada c = (Canonada) e.getAttribute("canonada");
-                        e.setAttribute("ui.label", c.cabal() + "/" + c.capacitat());
+                        float flux = fluxos != null ? fluxos.getOrDefault(c, 0f) : c.cabal();
+                        e.setAttribute("ui.label", flux + "/" + c.capacitat());
                     }
                 }
             }
@@ -660,53 +988,97 @@ public class Xarxa {
         return nodes;
     }
 
+    /**
+     * @brief Retorna la solució de demandes i cabals de la xarxa per a la versió actual.
+     * @pre ---
+     * @post Si la solució guardada correspon a la versió actual es retorna directament; altrament es recalcula i es guarda.
+     * @param demanda_plena True per al model on se suposa satisfeta tota la demanda, false per al model de cabal teòric.
+     * @return La solució de demandes i cabals.
+     */
+    private SolucioCabal solucio(boolean demanda_plena) {
+        SolucioCabal s = demanda_plena ? solucioDemandaPlena : solucio;
+        if (s != null && s.versio == versio) {
+            encertsCache++;
+            return s;
+        }
+        falladesCache++;
+        s = new SolucioCabal(versio);
+        calcularDemandes(s.demandes_nodes, s.demandes_canonades, demanda_plena);
+        calcularCabals(s.demandes_nodes, s.demandes_canonades, s.cabals_nodes, s.cabals_canonades, demanda_plena);
+        if (demanda_plena)
+            solucioDemandaPlena = s;
+        else
+            solucio = s;
+        return s;
+    }
+
+    /**
+     * @brief Calcula la demanda de tots els nodes i canonades de la xarxa en una sola passada.
+     * @pre ---
+     * @post demandes_nodes i demandes_canonades contenen la demanda de cada node i canonada. Els nodes es
+     * tracten en ordre topològic invers: un node es processa quan ja es coneix la demanda de totes les seves
+     * sortides. Els nodes que formen part d'un cicle no es poden ordenar i queden amb demanda 0.
+     * @param demandes_nodes Map on es guarden les demandes de cada node.
+     * @param demandes_canonades Map on es guarden les demandes de cada canonada.
+     * @param demanda_plena True si la demanda no es limita per la capacitat i només es reparteix entre superiors oberts.
+     */
+    private void calcularDemandes(Map<Node_X, Float> demandes_nodes, Map<Canonada, Float> demandes_canonades, boolean demanda_plena) {
+        recorregut.topologic(Recorregut.ENTRADES, v -> {
+            Node_X n = index.node(v);
+            float demanda = 0;
+            if (n instanceof PuntTerminal) {
+                demanda = ((PuntTerminal) n).demanda_actual();
+            }
+            else {
+                for (Canonada c : obtenirInferiors(n).values())
+                    demanda += demandes_canonades.get(c);
+            }
+            if (!n.aixetaOberta())
+                demanda = 0;
+            demandes_nodes.put(n, demanda);
+            propagarDemanda(n, demanda, demandes_canonades, demanda_plena);
+        });
+        for (int v = 0; v < index.nNodes(); v++) {
+            if (!recorregut.marcat(v)) {
+                demandes_nodes.put(index.node(v), 0f);
+                for (Canonada c : inferiors.get(v).values())
+                    demandes_canonades.putIfAbsent(c, 0f);
+            }
+        }
+    }
+
     /**
      * @brief Propaga la demanda des d'un node als seus nodes superiors a la xarxa.
-     * @pre n és un node de la xarxa.
-     * @post S'ha propagat la demanda del node n als nodes superiors i s'han actualitzat les estructures per paràmetre.
+     * @pre n és un node de la xarxa i demanda és la seva demanda.
+     * @post La demanda de n s'ha repartit entre les canonades d'entrada proporcionalment a la seva capacitat
+     * (cada canonada en rep com a màxim la seva capacitat, excepte amb demanda plena, on només es reparteix
+     * entre els superiors oberts i sense límit).
      * @param n Node de la xarxa des del qual es propaga la demanda.
-     * @param demandes_nodes Map que conté les demandes de cada node.
+     * @param demanda Demanda del node n.
      * @param demandes_canonades Map que conté les demandes de cada canonada.
-     * @param cua Cua de nodes pendents de visitar.
-     * @param visitats Conjunt de nodes ja visitats.
+     * @param demanda_plena True si la demanda no es limita per la capacitat i només es reparteix entre superiors oberts.
      */
-    private void propagarDemanda (Node_X n, Map<Node_X, Float> demandes_nodes, Map<Canonada, Float> demandes_canonades, Queue<Node_X> cua, Set<Node_X> visitats) {
-        if (!n.aixetaOberta())
-            demandes_nodes.put(n, 0.0f);
-
+    private void propagarDemanda(Node_X n, float demanda, Map<Canonada, Float> demandes_canonades, boolean demanda_plena) {
         Map<Node_X, Canonada> superiors = obtenirSuperiors(n);
         float total_capacitat = 0;
-        float demanda = demandes_nodes.get(n);
-        for(Canonada c : superiors.values()) {
-            total_capacitat += c.capacitat();
+        for(Map.Entry<Node_X, Canonada> e : superiors.entrySet()) {
+            if(!demanda_plena || e.getKey().aixetaOberta())
+                total_capacitat += e.getValue().capacitat();
         }
         for(Map.Entry<Node_X, Canonada> e : superiors.entrySet()) {
             float cabal = 0;
             float capacitat = e.getValue().capacitat();
-            if(demanda > total_capacitat)
+            if(demanda_plena && !e.getKey().aixetaOberta())
+                cabal = 0;
+            else if(demanda_plena) {
+                if(total_capacitat > 0)
+                    cabal = (demanda * capacitat) / total_capacitat;
+            }
+            else if(demanda > total_capacitat)
                 cabal = capacitat;
-            else
+            else if(total_capacitat > 0)
                 cabal = (demanda * capacitat) / total_capacitat;
             demandes_canonades.put(e.getValue(), cabal);
-            Node_X superior = e.getKey();
-            if(!visitats.contains(superior)) {
-                cua.add(superior);
-                visitats.add(superior);
-            }
-            boolean sabem_sortides = true;
-            float demanda_node = 0;
-            Iterator<Canonada> it = sortides(superior);
-            while (it.hasNext() && sabem_sortides) {
-                Canonada c = it.next();
-                if (!demandes_canonades.containsKey(c)) {
-                    sabem_sortides = false;
-                    break;
-                }
-                demanda_node += demandes_canonades.get(c);
-            }
-            if(sabem_sortides) {
-                demandes_nodes.put(superior, demanda_node);
-            }
         }
     }
 
@@ -718,19 +1090,7 @@ public class Xarxa {
      * @return Un map que conté els nodes superiors de n i les canonades que els connecten.
      */
     private Map<Node_X, Canonada> obtenirSuperiors(Node_X n) {
-        Map<Node_X, Canonada> superiors = new HashMap<>();
-        for(Node_X node : nodes()) {
-            if(node != n) {
-                Iterator<Canonada> canonades = sortides(node);
-                while(canonades.hasNext()) {
-                    Canonada c = canonades.next();
-                    if(c.node2().equals(n)) {
-                        superiors.put(node, c);
-                    }
-                }
-            }
-        }
-        return superiors;
+        return superiors.get(index.id(n.id()));
     }
 
     /**
@@ -741,98 +1101,297 @@ public class Xarxa {
      * @return Un map que conté els nodes inferiors de n i les canonades que els connecten.
      */
     private Map<Node_X, Canonada> obtenirInferiors(Node_X n) {
-        Map<Node_X, Canonada> inferiors = new HashMap<>();
-        for(Node_X node : nodes()) {
-            if(node != n) {
-                Iterator<Canonada> canonades = entrades(node);
-                while(canonades.hasNext()) {
-                    Canonada c = canonades.next();
-                    if(c.node1().equals(n)) {
-                        inferiors.put(node, c);
-                    }
-                }
+        return inferiors.get(index.id(n.id()));
+    }
+
+    /**
+     * @brief Retira l'aportació del node a les dades agregades abans de canviar-ne la demanda o l'aixeta
+     * @pre node és el node amb identificador dens v
+     * @post Les dades agregades de la seva component i del seu arbre no compten el node
+     * @param v Identificador dens del node
+     * @param node Node
+     */
+    private void retirarAportacio(int v, Node_X node) {
+        componentsObertes.retirar(v, node);
+        arbresDemanda.retirar(v, node);
+    }
+
+    /**
+     * @brief Torna a afegir l'aportació del node a les dades agregades després de canviar-ne la demanda o l'aixeta
+     * @pre node és el node amb identificador dens v i la seva aportació s'ha retirat
+     * @post Les dades agregades de la seva component i del seu arbre compten el node segons el seu estat actual
+     * @param v Identificador dens del node
+     * @param node Node
+     */
+    private void afegirAportacio(int v, Node_X node) {
+        componentsObertes.aportar(v, node);
+        arbresDemanda.aportar(v, node);
+    }
+
+    /**
+     * @brief Retorna l'identificador dens del node
+     * @pre ---
+     * @post Retorna l'identificador dens del node a l'índex
+     * @param node Node de la xarxa
+     * @return int Identificador dens del node
+     * @throws NoSuchElementException Si el node no pertany a la xarxa
+     */
+    private int idNode(Node_X node) {
+        int v = index.id(node.id());
+        if (v == -1)
+            throw new NoSuchElementException("Error de configuració a l'opció: el node no pertany a la xarxa");
+        return v;
+    }
+
+    /**
+     * @brief Retorna els nodes amb els identificadors densos donats
+     * @pre Els identificadors són de nodes registrats
+     * @post Retorna els nodes en el mateix ordre que els identificadors
+     * @param ids Identificadors densos
+     * @return List<Node_X> Nodes corresponents
+     */
+    private List<Node_X> nodes(int[] ids) {
+        List<Node_X> nodes = new ArrayList<>(ids.length);
+        for (int v : ids)
+            nodes.add(index.node(v));
+        return nodes;
+    }
+
+    /**
+     * @brief Comprova que el radi d'una consulta de regió és vàlid
+     * @pre ---
+     * @post No fa res si radi >= 0
+     * @param radi Radi en km
+     * @throws IllegalArgumentException Si el radi és negatiu o no és un nombre
+     */
+    private static void comprovarRadi(double radi) {
+        if (!(radi >= 0))
+            throw new IllegalArgumentException("Error de configuració a l'opció: el radi no pot ser negatiu.");
+    }
+
+    /**
+     * @brief Comprova que els vèrtexs d'una consulta de regió formen un rectangle vàlid
+     * @pre ---
+     * @post No fa res si sudoest.latitud() <= nordest.latitud()
+     * @param sudoest Vèrtex sud-oest del rectangle
+     * @param nordest Vèrtex nord-est del rectangle
+     * @throws IllegalArgumentException Si sudoest és més al nord que nordest
+     */
+    private static void comprovarRectangle(Coordenades sudoest, Coordenades nordest) {
+        if (sudoest.latitud() > nordest.latitud())
+            throw new IllegalArgumentException("Error de configuració a l'opció: el vèrtex sud-oest no pot ser més al nord que el vèrtex nord-est.");
+    }
+
+    /**
+     * @brief Retorna les canonades que uneixen dos dels nodes donats
+     * @pre Els identificadors són de nodes registrats
+     * @post Retorna les canonades amb els dos extrems a ids, en temps proporcional als nodes i a les seves sortides
+     * @param ids Identificadors densos dels nodes
+     * @return List<Canonada> Canonades entre els nodes
+     */
+    private List<Canonada> canonadesEntre(int[] ids) {
+        Recorregut dins = recorregut();
+        dins.marcar(ids);
+        List<Canonada> canonades = new ArrayList<>();
+        for (int v : ids) {
+            for (int k = index.iniciSortides(v); k < index.fiSortides(v); k++) {
+                int e = index.sortida(k);
+                if (dins.marcat(index.desti(e)))
+                    canonades.add(index.canonada(e));
             }
         }
-        return inferiors;
+        return canonades;
     }
 
     /**
-     * @brief Obté una llista amb totes les arestes de la xarxa.
-     * @pre ---
-     * @post Retorna una llista amb totes les arestes de la xarxa.
-     * @return Una llista amb totes les arestes de la xarxa.
+     * @brief Registra un node nou a l'índex d'adjacència i als maps de superiors i inferiors.
+     * @pre No hi ha cap node registrat amb el mateix id que n.
+     * @post n queda registrat sense nodes superiors ni inferiors.
+     * @param n Node a registrar.
      */
-    private List<Edge> obtenirArestes() {
-        List<Edge> arestes = new ArrayList<>();
-        for(Node_X n : nodes()) {
-            Iterator<Canonada> canonades = sortides(n);
-            while(canonades.hasNext()) {
-                Canonada c = canonades.next();
-                arestes.add(grafXarxa.getEdge(n.id() + "-" + c.node2().id()));
+    private void registrarNode(Node_X n) {
+        index.afegirNode(n);
+        components.afegirNode(n);
+        componentsObertes.afegirNode(n);
+        detectorCicles.afegirNode();
+        arbresDemanda.afegirNode();
+        indexEspacial.afegirNode(n);
+        superiors.add(new HashMap<>());
+        inferiors.add(new HashMap<>());
+        versio++;
+        versioTopologia++;
+    }
+
+    /**
+     * @brief Registra una canonada a l'índex d'adjacència i als maps de superiors i inferiors.
+     * @pre o i d són identificadors densos de nodes registrats.
+     * @post c queda registrada com a sortida de o i entrada de d.
+     * @param o Identificador dens del node d'inici.
+     * @param d Identificador dens del node de destí.
+     * @param c Canonada a registrar.
+     */
+    private void registrarCanonada(int o, int d, Canonada c) {
+        int e = index.afegirCanonada(o, d, c);
+        components.unir(o, d);
+        components.afegirCanonada(e, d, index.grauEntrada(d));
+        componentsObertes.afegirCanonada(o, d);
+        detectorCicles.afegirCanonada(o, d);
+        arbresDemanda.invalidar(o, d);
+        if (o != d) {
+            superiors.get(d).put(index.node(o), c);
+            inferiors.get(o).put(index.node(d), c);
+        }
+    }
+
+    /**
+     * @brief Substitueix el node registrat amb identificador dens v, conservant-ne les canonades.
+     * @pre v és l'identificador dens d'un node registrat i nou té el mateix id.
+     * @post nou ocupa el lloc de l'antic node a l'índex i als maps de superiors i inferiors dels seus veïns, i si
+     * l'antic node era un terminal deixa de constar a l'índex d'abonats.
+     * @param v Identificador dens del node.
+     * @param nou Node que substitueix l'antic.
+     */
+    private void substituirNode(int v, Node_X nou) {
+        Node_X antic = index.node(v);
+        index.substituirNode(v, nou);
+        components.substituirNode(v, antic, nou);
+        retirarAportacio(v, antic);
+        afegirAportacio(v, nou);
+        if (antic instanceof PuntTerminal) {
+            for (String idClient : ((PuntTerminal) antic).abonats()) {
+                List<PuntTerminal> terminals = terminalsAbonats.get(idClient);
+                terminals.remove(antic);
+                if (terminals.isEmpty())
+                    terminalsAbonats.remove(idClient);
             }
         }
-        return arestes;
+        for (Map.Entry<Node_X, Canonada> e : superiors.get(v).entrySet()) {
+            Map<Node_X, Canonada> inferiorsSuperior = inferiors.get(index.id(e.getKey().id()));
+            inferiorsSuperior.remove(antic);
+            inferiorsSuperior.put(nou, e.getValue());
+        }
+        for (Map.Entry<Node_X, Canonada> e : inferiors.get(v).entrySet()) {
+            Map<Node_X, Canonada> superiorsInferior = superiors.get(index.id(e.getKey().id()));
+            superiorsInferior.remove(antic);
+            superiorsInferior.put(nou, e.getValue());
+        }
+    }
+
+    /**
+     * @brief Calcula el cabal de tots els nodes i canonades de la xarxa en una sola passada.
+     * @pre demandes_nodes i demandes_canonades contenen la demanda de tots els nodes i canonades de la xarxa.
+     * @post cabals_nodes i cabals_canonades contenen el cabal de cada node i canonada, i el cabal de cada
+     * canonada queda actualitzat. Els nodes es tracten en ordre topològic: un node es processa quan ja es
+     * coneix el cabal de totes les seves entrades.
+     * @param demandes_nodes Map que conté les demandes de cada node.
+     * @param demandes_canonades Map que conté les demandes de cada canonada.
+     * @param cabals_nodes Map on es guarden els cabals de cada node.
+     * @param cabals_canonades Map on es guarden els cabals de cada canonada.
+     * @param demanda_plena True si el cabal no es limita per la demanda del node ni actualitza les canonades.
+     */
+    private void calcularCabals(Map<Node_X, Float> demandes_nodes, Map<Canonada, Float> demandes_canonades, Map<Node_X, Float> cabals_nodes, Map<Canonada, Float> cabals_canonades, boolean demanda_plena) {
+        recorregut.topologic(Recorregut.SORTIDES, v -> {
+            Node_X n = index.node(v);
+            float cabal = 0;
+            if (n instanceof PuntOrigen) {
+                cabal = ((PuntOrigen) n).cabal();
+            }
+            else {
+                for (Canonada c : obtenirSuperiors(n).values())
+                    cabal += cabals_canonades.get(c);
+            }
+            cabals_nodes.put(n, cabal);
+            repartirCabal(n, demandes_nodes, demandes_canonades, cabals_nodes, cabals_canonades, demanda_plena);
+        });
     }
 
     /**
      * @brief Reparteix el cabal des d'un node als seus nodes inferiors a la xarxa.
-     * @pre n és un node de la xarxa.
-     * @post S'ha repartit el cabal del node n als nodes inferiors i s'han actualitzat les estructures per paràmetre.
+     * @pre n és un node de la xarxa amb el cabal de totes les entrades conegut.
+     * @post El cabal de n (limitat a la seva demanda, excepte amb demanda plena) s'ha repartit entre les canonades
+     * de sortida proporcionalment a la seva demanda.
      * @param n Node de la xarxa des del qual es reparteix el cabal.
+     * @param demandes_nodes Map que conté les demandes de cada node.
+     * @param demandes_canonades Map que conté les demandes de cada canonada.
      * @param cabals_nodes Map que conté els cabals de cada node.
      * @param cabals_canonades Map que conté els cabals de cada canonada.
-     * @param cua Cua de nodes pendents de visitar.
-     * @param visitats Conjunt de nodes ja visitats.
-     */
-    private void repartirCabal(Node_X n, Map<Node_X, Float> cabals_nodes, Map<Canonada, Float> cabals_canonades, Queue<Node_X> cua, Set<Node_X> visitats) {
-        Map<Node_X, Float> demandes_nodes = new HashMap<>();
-        Map<Canonada, Float> demandes_canonades = new HashMap<>();
-        float demanda_total = demanda(n, demandes_canonades, demandes_nodes);
-        for(Map.Entry<Node_X, Canonada> e : obtenirInferiors(n).entrySet()) {
+     * @param demanda_plena True si el cabal no es limita per la demanda del node ni actualitza les canonades.
+     */
+    private void repartirCabal(Node_X n, Map<Node_X, Float> demandes_nodes, Map<Canonada, Float> demandes_canonades, Map<Node_X, Float> cabals_nodes, Map<Canonada, Float> cabals_canonades, boolean demanda_plena) {
+        Map<Node_X, Canonada> inferiors_n = obtenirInferiors(n);
+        float demanda_total = 0;
+        if(demanda_plena) {
+            for(Canonada c : inferiors_n.values())
+                demanda_total += demandes_canonades.get(c);
+        }
+        else
+            demanda_total = demandes_nodes.get(n);
+        for(Map.Entry<Node_X, Canonada> e : inferiors_n.entrySet()) {
             float demanda = demandes_canonades.get(e.getValue());
             float cabal = 0;
             if(demanda_total > 0) {
-                if(demandes_nodes.get(n) < cabals_nodes.get(n)) {
-                    cabals_nodes.put(n, demandes_nodes.get(n));
+                if(!demanda_plena && demanda_total < cabals_nodes.get(n)) {
+                    cabals_nodes.put(n, demanda_total);
                 }
                 cabal = (cabals_nodes.get(n) * demanda) / demanda_total;
             }
             cabals_canonades.put(e.getValue(), cabal);
-            e.getValue().actualitzarCabal(cabal);
-            if(!visitats.contains(e.getKey())) {
-                cua.add(e.getKey());
-                visitats.add(e.getKey());
-            }
-            boolean sabem_entrades = true;
-            float cabal_node = 0;
-            Iterator<Canonada> it = entrades(e.getKey());
-            while(it.hasNext()) {
-                Canonada c = it.next();
-                if(!cabals_canonades.containsKey(c)) {
-                    sabem_entrades = false;
-                    break;
-                }
-                cabal_node += cabals_canonades.getOrDefault(c, 0f);
-            }
-            if(sabem_entrades)
-                cabals_nodes.put(e.getKey(), cabal_node);
+            if(!demanda_plena)
+                e.getValue().actualitzarCabal(cabal);
         }
     }
 
     /**
-     * @brief Marca un node i tots els seus nodes connectats com a visitats.
-     * @pre node és un node de la xarxa.
-     * @post S'ha marcat el node com a visitat i s'han marcat com a visitats tots els nodes connectats a node.
-     * @param node Node de la xarxa que es marca com a visitat.
-     * @param visitats Conjunt de nodes ja visitats.
+     * @class SolucioCabal
+     * @brief Demandes i cabals de tots els nodes i canonades de la xarxa per a una versió concreta.
      */
-    private void calculConnex(Node node, Set<Node> visitats) {
-        visitats.add(node);
-        for (Edge edge : node) {
-            Node vei = edge.getOpposite(node);
-            if (!visitats.contains(vei)) {
-                calculConnex(vei, visitats);
-            }
+    private static class SolucioCabal {
+        private final long versio; ///< Versió de la xarxa per a la qual s'ha calculat la solució
+        private final Map<Node_X, Float> demandes_nodes = new HashMap<>();     ///< Demanda de cada node
+        private final Map<Canonada, Float> demandes_canonades = new HashMap<>(); ///< Demanda de cada canonada
+        private final Map<Node_X, Float> cabals_nodes = new HashMap<>();       ///< Cabal de cada node
+        private final Map<Canonada, Float> cabals_canonades = new HashMap<>();   ///< Cabal de cada canonada
+
+        /**
+         * @brief Constructor d'una solució buida
+         * @pre ---
+         * @post Crea una solució sense dades per a la versió indicada
+         */
+        SolucioCabal(long versio) {
+            this.versio = versio;
+        }
+    }
+
+    /**
+     * @class IteradorCanonades
+     * @brief Iterador sobre una franja del vector d'adjacència de l'índex de la xarxa.
+     */
+    private class IteradorCanonades implements Iterator<Canonada> {
+        private final int[] arestes; ///< Vector d'adjacència de l'índex
+        private int pos;             ///< Posició actual dins de la franja
+        private final int fi;        ///< Posició següent a l'última de la franja
+
+        /**
+         * @brief Constructor de l'iterador
+         * @pre 0 <= inici <= fi <= arestes.length
+         * @post Crea un iterador sobre les canonades d'arestes[inici..fi)
+         */
+        IteradorCanonades(int[] arestes, int inici, int fi) {
+            this.arestes = arestes;
+            this.pos = inici;
+            this.fi = fi;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pos < fi;
+        }
+
+        @Override
+        public Canonada next() {
+            if (pos >= fi)
+                throw new NoSuchElementException();
+            return index.canonada(arestes[pos++]);
         }
     }
 }
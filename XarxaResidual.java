@@ -0,0 +1,483 @@
+//Natàlia Masgrau Vila
+/**
+ * @file XarxaResidual.java
+ * @brief Graf residual lleuger sobre la topologia d'una xarxa de distribució d'aigua, per al càlcul del flux màxim.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * @class XarxaResidual
+ * @brief Graf residual amb capacitats i fluxos en vectors d'enters i reals sobre una component connexa d'una Xarxa.
+ *
+ * El graf només conté els nodes i les canonades de la component, amb identificadors locals: el node local i
+ * és nodes[i] i la canonada local e és canonades[e], tots dos vectors ordenats per identificador dens, de
+ * manera que la resta de la xarxa no costa ni memòria ni temps. Cada canonada local e dona lloc a l'arc
+ * directe 2e i al seu arc invers 2e+1. S'hi afegeixen un superorigen connectat a tots els orígens i un
+ * superterminal al qual es connecten tots els terminals de la component, amb capacitat infinita. Els nodes
+ * amb l'aixeta tancada no deixen passar aigua. Les canonades de la xarxa no es modifiquen.
+ *
+ * El flux màxim es calcula amb l'algorisme de Dinic: cada fase construeix el graf de nivells amb un
+ * recorregut en amplada i hi troba un flux bloquejant amb un recorregut en profunditat iteratiu que
+ * recorda, per a cada node, el primer arc encara útil.
+ *
+ * El graf admet canvis de capacitat d'una canonada i l'obertura o el tancament d'aixetes sense
+ * recalcular-ho tot: si un arc queda amb menys capacitat que el flux que hi passa, l'excés es desvia
+ * primer per un altre camí entre els seus extrems i el que no es pot desviar es retorna cap al
+ * superorigen i el superterminal. Després només cal augmentar on hi ha capacitat nova.
+ *
+ * Amb el flux màxim, els nodes accessibles des del superorigen pel graf residual formen un costat
+ * del tall mínim, i les canonades que en surten cap a l'altre costat en són el coll d'ampolla.
+ */
+class XarxaResidual {
+
+    private final IndexXarxa index;  ///< Índex d'adjacència de la xarxa original
+    private final int[] nodes;       ///< Identificador dens de cada node local, en ordre creixent
+    private final int[] canonades;   ///< Identificador dens de cada canonada local, en ordre creixent
+    private final int nNodes;        ///< Nombre de nodes (els de la component més el superorigen i el superterminal)
+    private final int font;          ///< Identificador del superorigen
+    private final int pou;           ///< Identificador del superterminal
+    private final int nCanonades;    ///< Nombre de canonades de la component
+    private final int[] iniciArcs;   ///< Inici de la franja d'arcs de cada node a arcsNode
+    private final int[] arcsNode;    ///< Arcs agrupats pel node de sortida
+    private final int[] desti;       ///< Node de destí de cada arc
+    private final float[] capacitat; ///< Capacitat de cada parell d'arcs amb les aixetes obertes, indexada per a/2
+    private final boolean[] tancat;  ///< Cert si el node té l'aixeta tancada
+    private final float[] residual;  ///< Capacitat residual de cada arc; la de l'arc invers és el flux de l'arc directe
+    private final int[] nivell;      ///< Distància de cada node al superorigen en el graf de nivells (-1 si no s'hi arriba)
+    private final int[] arcActual;   ///< Posició a arcsNode del primer arc encara útil de cada node en la fase actual
+    private final int[] cua;         ///< Cua del recorregut en amplada
+    private final int[] cami;        ///< Arcs del camí actual del recorregut en profunditat
+    private final int[] arcPrevi;    ///< Arc pel qual s'ha arribat a cada node en l'últim recorregut de reparació
+    private float fluxTotal = 0;     ///< Flux total actual del superorigen al superterminal
+
+    /**
+     * @brief Constructor del graf residual
+     * @param x Xarxa de distribució d'aigua.
+     * @param node Node de la component.
+     * Pre: node pertany a la xarxa x.
+     * Post: Crea el graf residual de la component connexa de node amb flux nul, en temps proporcional a la mida de
+     *       la component.
+     */
+    XarxaResidual(Xarxa x, Node_X node) {
+        index = x.index();
+        nodes = x.idsNodesComponent(node);
+        canonades = x.idsCanonadesComponent(node);
+        Arrays.sort(nodes);
+        Arrays.sort(canonades);
+        List<PuntOrigen> origens = x.origensComponent(node);
+        List<PuntTerminal> terminals = x.terminalsComponent(node);
+        nCanonades = canonades.length;
+        font = nodes.length;
+        pou = font + 1;
+        nNodes = font + 2;
+
+        int nArcs = 2 * (nCanonades + origens.size() + terminals.size());
+        desti = new int[nArcs];
+        capacitat = new float[nArcs / 2];
+        residual = new float[nArcs];
+        tancat = new boolean[nNodes];
+        for (int v = 0; v < font; v++)
+            tancat[v] = !index.node(nodes[v]).aixetaOberta();
+
+        int a = 0;
+        for (int e = 0; e < nCanonades; e++, a += 2) {
+            int g = canonades[e];
+            afegirArc(a, nodeLocal(index.origen(g)), nodeLocal(index.desti(g)), index.canonada(g).capacitat());
+        }
+        for (PuntOrigen origen : origens) {
+            afegirArc(a, font, nodeLocal(index.id(origen.id())), Float.POSITIVE_INFINITY);
+            a += 2;
+        }
+        for (PuntTerminal terminal : terminals) {
+            afegirArc(a, nodeLocal(index.id(terminal.id())), pou, Float.POSITIVE_INFINITY);
+            a += 2;
+        }
+
+        iniciArcs = new int[nNodes + 1];
+        for (int arc = 0; arc < nArcs; arc++)
+            iniciArcs[origenArc(arc) + 1]++;
+        for (int v = 0; v < nNodes; v++)
+            iniciArcs[v + 1] += iniciArcs[v];
+        int[] pos = Arrays.copyOf(iniciArcs, nNodes);
+        arcsNode = new int[nArcs];
+        for (int arc = 0; arc < nArcs; arc++)
+            arcsNode[pos[origenArc(arc)]++] = arc;
+
+        nivell = new int[nNodes];
+        arcActual = new int[nNodes];
+        cua = new int[nNodes];
+        cami = new int[nNodes];
+        arcPrevi = new int[nNodes];
+    }
+
+    /**
+     * @brief Augmenta el flux fins al flux màxim amb l'algorisme de Dinic.
+     * @param registrarCamins Si és cert, el resultat inclou el flux de cada camí augmentant.
+     * @return Resultat amb el flux màxim total i el flux de cada canonada.
+     * Pre: ---
+     * Post: El graf residual conté un flux màxim del superorigen al superterminal.
+     */
+    ResultatFluxMaxim fluxMaxim(boolean registrarCamins) {
+        List<Float> camins = new ArrayList<>();
+        while (construirNivells())
+            fluxTotal += fluxBloquejant(registrarCamins ? camins : null);
+        return new ResultatFluxMaxim(fluxTotal, fluxos(), camins);
+    }
+
+    /**
+     * @brief Construeix el graf de nivells amb un recorregut en amplada des del superorigen.
+     * @return Cert si el superterminal és accessible des del superorigen.
+     * Pre: ---
+     * Post: nivell conté la distància de cada node al superorigen pels arcs amb capacitat residual i arcActual
+     *       apunta al primer arc de cada node.
+     */
+    private boolean construirNivells() {
+        Arrays.fill(nivell, -1);
+        int cap = 0, fi = 0;
+        nivell[font] = 0;
+        cua[fi++] = font;
+        while (cap < fi) {
+            int u = cua[cap++];
+            if (nivell[pou] != -1 && nivell[u] >= nivell[pou])
+                break;
+            for (int k = iniciArcs[u]; k < iniciArcs[u + 1]; k++) {
+                int arc = arcsNode[k];
+                int v = desti[arc];
+                if (residual[arc] > 0 && nivell[v] == -1) {
+                    nivell[v] = nivell[u] + 1;
+                    cua[fi++] = v;
+                }
+            }
+        }
+        System.arraycopy(iniciArcs, 0, arcActual, 0, nNodes);
+        return nivell[pou] != -1;
+    }
+
+    /**
+     * @brief Troba un flux bloquejant en el graf de nivells actual.
+     * @param camins Llista on s'afegeix el flux de cada camí augmentant, o null per no registrar-los.
+     * @return Flux afegit en aquesta fase.
+     * Pre: construirNivells() ha retornat cert.
+     * Post: No queda cap camí del superorigen al superterminal dins el graf de nivells.
+     */
+    private float fluxBloquejant(List<Float> camins) {
+        float total = 0;
+        int profunditat = 0;
+        int u = font;
+        while (true) {
+            if (u == pou) {
+                float flux = Float.POSITIVE_INFINITY;
+                for (int i = 0; i < profunditat; i++)
+                    flux = Math.min(flux, residual[cami[i]]);
+                for (int i = 0; i < profunditat; i++) {
+                    residual[cami[i]] -= flux;
+                    residual[cami[i] ^ 1] += flux;
+                }
+                total += flux;
+                if (flux == Float.POSITIVE_INFINITY)
+                    return total;
+                if (camins != null)
+                    camins.add(flux);
+                // Es continua des de l'origen del primer arc saturat del camí
+                int i = 0;
+                while (i < profunditat - 1 && residual[cami[i]] > 0)
+                    i++;
+                profunditat = i;
+                u = origenArc(cami[i]);
+                continue;
+            }
+            boolean avancat = false;
+            for (; arcActual[u] < iniciArcs[u + 1]; arcActual[u]++) {
+                int arc = arcsNode[arcActual[u]];
+                int v = desti[arc];
+                if (residual[arc] > 0 && nivell[v] == nivell[u] + 1) {
+                    cami[profunditat++] = arc;
+                    u = v;
+                    avancat = true;
+                    break;
+                }
+            }
+            if (!avancat) {
+                if (u == font)
+                    return total;
+                // Atzucac: es descarta el node per la resta de la fase i es retrocedeix
+                nivell[u] = -1;
+                u = origenArc(cami[--profunditat]);
+                arcActual[u]++;
+            }
+        }
+    }
+
+    /**
+     * @brief Retorna l'identificador local del node amb identificador dens v.
+     * @return Identificador local, o -1 si el node no era a la component quan es va crear el graf residual.
+     */
+    int nodeLocal(int v) {
+        int i = Arrays.binarySearch(nodes, v);
+        return i >= 0 ? i : -1;
+    }
+
+    /**
+     * @brief Retorna l'identificador local de la canonada amb identificador dens e.
+     * @return Identificador local, o -1 si la canonada no era a la component quan es va crear el graf residual.
+     */
+    int canonadaLocal(int e) {
+        int i = Arrays.binarySearch(canonades, e);
+        return i >= 0 ? i : -1;
+    }
+
+    /**
+     * @brief Canvia la capacitat de la canonada e i repara el flux si deixa de ser vàlid.
+     * @param e Identificador local de la canonada.
+     * @param c Nova capacitat.
+     * Pre: 0 <= e < nombre de canonades de la component i c >= 0.
+     * Post: La canonada e té capacitat c i el flux torna a ser vàlid, però pot no ser màxim.
+     */
+    void canviarCapacitat(int e, float c) {
+        capacitat[e] = c;
+        ajustarArc(2 * e);
+    }
+
+    /**
+     * @brief Tanca o obre l'aixeta del node v i repara el flux si deixa de ser vàlid.
+     * @param v Identificador local del node.
+     * @param tancar Cert per tancar l'aixeta, fals per obrir-la.
+     * Pre: 0 <= v < nombre de nodes de la component.
+     * Post: Els arcs de v tenen capacitat 0 si tancar és cert, o la seva capacitat si els dos extrems estan oberts;
+     *       el flux torna a ser vàlid, però pot no ser màxim.
+     */
+    void canviarAixeta(int v, boolean tancar) {
+        if (tancat[v] == tancar)
+            return;
+        tancat[v] = tancar;
+        for (int k = iniciArcs[v]; k < iniciArcs[v + 1]; k++)
+            ajustarArc(arcsNode[k] & ~1);
+    }
+
+    /**
+     * @brief Recalcula la capacitat residual de l'arc directe a i, si hi passa més flux que la seva capacitat, reparteix l'excés.
+     * @param a Identificador de l'arc directe (parell).
+     * Pre: a és parell.
+     * Post: El flux de l'arc a no supera la seva capacitat i es conserva a tots els nodes excepte el superorigen i el superterminal.
+     */
+    private void ajustarArc(int a) {
+        float c = capacitatEfectiva(a);
+        float flux = residual[a + 1];
+        if (c >= flux) {
+            residual[a] = c - flux;
+            return;
+        }
+        residual[a] = 0;
+        residual[a + 1] = c;
+        int u = origenArc(a);
+        int v = desti[a];
+        if (u == v)
+            return;
+        // u rep més aigua de la que envia i v n'envia més de la que rep: primer es desvia l'excés de u a v
+        float exces = flux - c;
+        exces -= empenyer(u, v, exces, v == pou ? font : pou);
+        if (exces > 0) {
+            // El que no es pot desviar es retorna: de u cap al superorigen i del superterminal cap a v
+            if (u != font)
+                empenyer(u, font, exces, pou);
+            if (v != pou)
+                empenyer(pou, v, exces, font);
+            fluxTotal -= exces;
+        }
+    }
+
+    /**
+     * @brief Fa passar flux de s a t per camins augmentants fins a un màxim de limit.
+     * @param s Node d'inici.
+     * @param t Node final.
+     * @param limit Flux màxim a fer passar.
+     * @param exclos Node pel qual no poden passar els camins.
+     * @return Flux que s'ha fet passar.
+     * Pre: s != t, s != exclos i t != exclos.
+     * Post: S'ha fet passar el flux retornat de s a t sense passar per exclos.
+     */
+    private float empenyer(int s, int t, float limit, int exclos) {
+        float total = 0;
+        while (total < limit) {
+            Arrays.fill(arcPrevi, -1);
+            int cap = 0, fi = 0;
+            cua[fi++] = s;
+            while (cap < fi && arcPrevi[t] == -1) {
+                int u = cua[cap++];
+                for (int k = iniciArcs[u]; k < iniciArcs[u + 1]; k++) {
+                    int arc = arcsNode[k];
+                    int w = desti[arc];
+                    if (residual[arc] > 0 && w != s && w != exclos && arcPrevi[w] == -1) {
+                        arcPrevi[w] = arc;
+                        cua[fi++] = w;
+                    }
+                }
+            }
+            if (arcPrevi[t] == -1)
+                break;
+
+            float flux = limit - total;
+            for (int w = t; w != s; w = origenArc(arcPrevi[w]))
+                flux = Math.min(flux, residual[arcPrevi[w]]);
+            for (int w = t; w != s; w = origenArc(arcPrevi[w])) {
+                residual[arcPrevi[w]] -= flux;
+                residual[arcPrevi[w] ^ 1] += flux;
+            }
+            total += flux;
+        }
+        return total;
+    }
+
+    /**
+     * @brief Retorna les canonades del tall mínim.
+     * @return Canonades que van d'un node accessible des del superorigen a un de no accessible, amb els dos extrems oberts.
+     * Pre: El graf residual conté un flux màxim.
+     * Post: Retorna les canonades saturades que limiten el flux màxim.
+     */
+    List<Canonada> tallMinim() {
+        boolean[] accessible = accessiblesDesDeFont();
+        List<Canonada> tall = new ArrayList<>();
+        for (int e = 0; e < nCanonades; e++) {
+            if (alTall(e, accessible))
+                tall.add(index.canonada(canonades[e]));
+        }
+        return tall;
+    }
+
+    /**
+     * @brief Estima quant augmentaria el flux màxim si s'amplia cada canonada del tall mínim.
+     * @return Map amb el guany estimat de cada canonada del tall mínim.
+     * Pre: El graf residual conté un flux màxim.
+     * Post: El guany de la canonada (u,v) és el mínim entre el camí residual més ample del superorigen a u i
+     *       el de v al superterminal.
+     */
+    Map<Canonada, Float> guanysAmpliacio() {
+        boolean[] accessible = accessiblesDesDeFont();
+        float[] ampleFont = camiMesAmple(font, true);
+        float[] amplePou = camiMesAmple(pou, false);
+        Map<Canonada, Float> guanys = new HashMap<>();
+        for (int e = 0; e < nCanonades; e++) {
+            if (alTall(e, accessible))
+                guanys.put(index.canonada(canonades[e]), Math.min(ampleFont[origenArc(2 * e)], amplePou[desti[2 * e]]));
+        }
+        return guanys;
+    }
+
+    /**
+     * @brief Diu si la canonada local e va d'un node accessible a un de no accessible, amb els dos extrems oberts.
+     */
+    private boolean alTall(int e, boolean[] accessible) {
+        int u = origenArc(2 * e);
+        int v = desti[2 * e];
+        return accessible[u] && !accessible[v] && !tancat[u] && !tancat[v];
+    }
+
+    /**
+     * @brief Marca els nodes accessibles des del superorigen pels arcs amb capacitat residual.
+     */
+    private boolean[] accessiblesDesDeFont() {
+        boolean[] accessible = new boolean[nNodes];
+        int cap = 0, fi = 0;
+        accessible[font] = true;
+        cua[fi++] = font;
+        while (cap < fi) {
+            int u = cua[cap++];
+            for (int k = iniciArcs[u]; k < iniciArcs[u + 1]; k++) {
+                int arc = arcsNode[k];
+                int v = desti[arc];
+                if (residual[arc] > 0 && !accessible[v]) {
+                    accessible[v] = true;
+                    cua[fi++] = v;
+                }
+            }
+        }
+        return accessible;
+    }
+
+    /**
+     * @brief Calcula l'amplada del camí residual més ample entre s i cada node.
+     * @param s Node d'inici (o final, si endavant és fals).
+     * @param endavant Cert per als camins que surten de s, fals per als que hi arriben.
+     * @return Amplada (capacitat residual mínima) del camí més ample per a cada node, 0 si no n'hi ha cap.
+     */
+    private float[] camiMesAmple(int s, boolean endavant) {
+        float[] ample = new float[nNodes];
+        ample[s] = Float.POSITIVE_INFINITY;
+        // Cada entrada codifica l'amplada (bits del float, que conserven l'ordre per a valors positius) i el node
+        PriorityQueue<Long> cua = new PriorityQueue<>(Collections.reverseOrder());
+        cua.add(entradaCua(ample[s], s));
+        while (!cua.isEmpty()) {
+            long entrada = cua.poll();
+            int u = (int) entrada;
+            if (Float.intBitsToFloat((int) (entrada >>> 32)) < ample[u])
+                continue;
+            for (int k = iniciArcs[u]; k < iniciArcs[u + 1]; k++) {
+                int arc = endavant ? arcsNode[k] : arcsNode[k] ^ 1;
+                int v = desti[arcsNode[k]];
+                float a = Math.min(ample[u], residual[arc]);
+                if (a > ample[v]) {
+                    ample[v] = a;
+                    cua.add(entradaCua(a, v));
+                }
+            }
+        }
+        return ample;
+    }
+
+    /**
+     * @brief Codifica una amplada positiva i un node en un long ordenat per amplada.
+     */
+    private static long entradaCua(float ample, int v) {
+        return ((long) Float.floatToIntBits(ample) << 32) | v;
+    }
+
+    /**
+     * @brief Retorna el flux actual de cada canonada de la component.
+     * @return Map amb el flux de cada canonada.
+     * Pre: ---
+     * Post: Retorna el flux actual de cada canonada de la component.
+     */
+    Map<Canonada, Float> fluxos() {
+        Map<Canonada, Float> fluxos = new HashMap<>();
+        for (int e = 0; e < nCanonades; e++)
+            fluxos.put(index.canonada(canonades[e]), residual[2 * e + 1]);
+        return fluxos;
+    }
+
+    /**
+     * @brief Inicialitza l'arc directe a i el seu invers a+1.
+     * @param a Identificador de l'arc directe (parell).
+     * @param o Node de sortida de l'arc directe.
+     * @param d Node de destí de l'arc directe.
+     * @param c Capacitat de l'arc directe.
+     * Pre: a és parell.
+     * Post: L'arc a va de o a d amb capacitat c (0 si o o d estan tancats) i l'arc a+1 va de d a o amb capacitat 0.
+     */
+    private void afegirArc(int a, int o, int d, float c) {
+        desti[a] = d;
+        desti[a + 1] = o;
+        capacitat[a / 2] = c;
+        residual[a] = capacitatEfectiva(a);
+    }
+
+    /**
+     * @brief Retorna la capacitat de l'arc directe a tenint en compte les aixetes dels seus extrems.
+     */
+    private float capacitatEfectiva(int a) {
+        return tancat[desti[a]] || tancat[desti[a + 1]] ? 0 : capacitat[a / 2];
+    }
+
+    /**
+     * @brief Retorna el node de sortida de l'arc a.
+     */
+    private int origenArc(int a) {
+        return desti[a ^ 1];
+    }
+}